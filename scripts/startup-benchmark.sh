@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Compares time to application ready (and, given a CSV, to the first job launch) between the
+# default startup and the fast-startup mode (AOT + CDS + versioned schema init).
+# Requires the database from application.yml and scripts/build-cds-archive.sh to have run.
+#
+#   scripts/startup-benchmark.sh [runs] [csv-to-upload]
+# LAUNCH_TIMEOUT (seconds, default 120) bounds the wait for the first job launch after the upload.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+CSV=${2:-}
+APP=spring-batch-mssql-csv-0.0.1-SNAPSHOT
+JAR=target/cds/$APP.jar
+PORT=8084
+LAUNCH_TIMEOUT=${LAUNCH_TIMEOUT:-120}
+
+measure() {
+    local label=$1; shift
+    local total_ready=0 total_launch=0
+    for i in $(seq 1 "$RUNS"); do
+        local log
+        log=$(mktemp)
+        java "$@" -jar "$JAR" >"$log" 2>&1 &
+        local pid=$!
+        until grep -q "STARTUP ready_ms=" "$log"; do
+            kill -0 "$pid" 2>/dev/null || { cat "$log"; exit 1; }
+            sleep 0.05
+        done
+        local ready launch=0
+        ready=$(grep -o "STARTUP ready_ms=[0-9]*" "$log" | cut -d= -f2)
+        if [ -n "$CSV" ]; then
+            curl -s -F "file=@$CSV" "http://localhost:$PORT/api/upload" >/dev/null
+            local deadline=$((SECONDS + LAUNCH_TIMEOUT))
+            until grep -q "STARTUP first_job_launch_ms=" "$log"; do
+                kill -0 "$pid" 2>/dev/null || { cat "$log"; exit 1; }
+                if [ "$SECONDS" -ge "$deadline" ]; then
+                    echo "$label run $i: no job launch within ${LAUNCH_TIMEOUT}s" >&2
+                    cat "$log"; kill "$pid"; exit 1
+                fi
+                sleep 0.05
+            done
+            launch=$(grep -o "STARTUP first_job_launch_ms=[0-9]*" "$log" | cut -d= -f2)
+        fi
+        kill "$pid"; wait "$pid" 2>/dev/null || true
+        rm -f "$log"
+        echo "$label run $i: ready=${ready}ms first_job_launch=${launch}ms"
+        total_ready=$((total_ready + ready))
+        total_launch=$((total_launch + launch))
+    done
+    echo "$label average: ready=$((total_ready / RUNS))ms first_job_launch=$((total_launch / RUNS))ms"
+}
+
+measure "default"
+measure "fast-startup" -XX:SharedArchiveFile=target/cds/app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup
@@ -1,26 +1,45 @@
 package com.example.batch.config;
 
 import com.example.batch.listener.PersonSkipListener;
+import com.example.batch.listener.JobRunSummaryListener;
+import com.example.batch.listener.StartupTimeReporter;
+import com.example.batch.profiling.JdbcProfilingListener;
+import com.example.batch.reconcile.ReconciliationTasklet;
 import com.example.batch.model.Person;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.SkipListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
-import org.springframework.batch.item.file.FlatFileItemWriter;
-import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
 import org.springframework.batch.item.file.transform.BeanWrapperFieldExtractor;
 import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import com.example.batch.writer.SegmentedFileItemWriter;
 import com.example.batch.writer.VersioningPersonItemWriter;
 import com.example.batch.repository.PersonRepository;
 import org.springframework.web.client.RestClient;
+import com.example.batch.reader.HttpPageCache;
 import com.example.batch.reader.RestPagedPersonItemReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.LineCallbackHandler;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
@@ -28,37 +47,74 @@ import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
 import org.springframework.batch.item.file.mapping.DefaultLineMapper;
 import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.batch.item.support.SynchronizedItemStreamReader;
-import org.springframework.batch.item.support.SynchronizedItemStreamWriter;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.PathResource;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
 
 @Configuration
 @EnableConfigurationProperties({BatchProperties.class, FileUploadProperties.class, FileOutputProperties.class})
 public class BatchConfig {
 
+    /**
+     * Job parameters of the step execution a step-scoped bean is being created for.
+     * Read directly instead of through {@code #{jobParameters[...]}} late binding, which avoids
+     * SpEL parsing per step and the reflection hints it needs under Spring AOT.
+     */
+    private static JobParameters currentJobParameters() {
+        StepContext context = StepSynchronizationManager.getContext();
+        Assert.state(context != null, "No step context; step-scoped beans are only created inside a step");
+        return context.getStepExecution().getJobParameters();
+    }
+
+    /**
+     * Pooled keep-alive client for the REST source. HttpClient 5 sends Accept-Encoding
+     * and transparently decompresses gzip/deflate responses.
+     */
+    @Bean
+    public CloseableHttpClient restHttpClient(BatchProperties properties) {
+        BatchProperties.Rest rest = properties.getRest();
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(rest.getMaxConnections())
+                .setMaxConnPerRoute(rest.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(rest.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(rest.getReadTimeout()))
+                        .build())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+    }
+
     @Bean
-    public RestClient restClient() {
-        return RestClient.create();
+    public RestClient restClient(CloseableHttpClient restHttpClient) {
+        return RestClient.builder()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(restHttpClient))
+                .build();
     }
 
     @Bean
     @StepScope
-    public FlatFileItemReader<Person> personReader(@Value("#{jobParameters['file']}") String file) {
+    public FlatFileItemReader<Person> personReader() {
+        String file = currentJobParameters().getString("file");
         // Define a reader that maps CSV columns to Person fields
         FlatFileItemReader<Person> reader = new FlatFileItemReaderBuilder<Person>()
                 .name("personReader")
                 .resource(new FileSystemResource(file))
                 .linesToSkip(1)
-                .lineMapper(lineMapper())
+                .lineMapper(personLineMapper())
                 .build();
 
         // Add a header callback just for clarity (optional)
@@ -70,7 +126,8 @@ public class BatchConfig {
     }
 
 
-    private DefaultLineMapper<Person> lineMapper() {
+    @Bean
+    public DefaultLineMapper<Person> personLineMapper() {
         DefaultLineMapper<Person> lineMapper = new DefaultLineMapper<>();
         DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
         tokenizer.setDelimiter(",");
@@ -117,9 +174,12 @@ public class BatchConfig {
     }
 
     @Bean(name = "batchTaskExecutor")
-    public TaskExecutor taskExecutor(BatchProperties properties) {
+    @StepScope
+    public SimpleAsyncTaskExecutor taskExecutor(BatchProperties properties) {
+        Long threads = currentJobParameters().getLong("threads");
+        // One executor per step execution, limited to the share JobScheduler granted this job
         SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("batch-exec-");
-        executor.setConcurrencyLimit(properties.getConcurrency().getThreads());
+        executor.setConcurrencyLimit(threads != null ? threads.intValue() : properties.getConcurrency().getThreads());
         return executor;
     }
 
@@ -131,7 +191,8 @@ public class BatchConfig {
                             VersioningPersonItemWriter personWriter,
                             BatchProperties properties,
                             @org.springframework.beans.factory.annotation.Qualifier("batchTaskExecutor") TaskExecutor taskExecutor,
-                            PersonSkipListener personSkipListener) {
+                            PersonSkipListener personSkipListener,
+                            JdbcProfilingListener jdbcProfilingListener) {
 
         StepBuilder builder = new StepBuilder("csvToDbStep", jobRepository);
         var step = builder
@@ -140,9 +201,15 @@ public class BatchConfig {
                 .processor(personProcessor)
                 .writer(personWriter)
                 .faultTolerant()
+                .retryLimit(3)
+                .retry(ConcurrencyFailureException.class) // lost-update conflicts between chunks, deadlocks
                 .skipLimit(100)
                 .skip(Exception.class)
-                .listener(personSkipListener)
+                .listener((SkipListener<Person, Person>) personSkipListener)
+                .listener((StepExecutionListener) personSkipListener)
+                .listener((StepExecutionListener) jdbcProfilingListener)
+                .listener((ChunkListener) jdbcProfilingListener)
+                .listener((ItemWriteListener<Object>) jdbcProfilingListener)
                 .taskExecutor(taskExecutor)
                 .build();
         return step;
@@ -151,10 +218,17 @@ public class BatchConfig {
     @Bean
     @StepScope
     public RestPagedPersonItemReader restPersonReader(RestClient restClient,
-                                                      BatchProperties properties) {
-        String baseUrl = properties.getRest().getBaseUrl();
-        int size = properties.getRest().getPageSize();
-        return new RestPagedPersonItemReader(restClient, baseUrl, size);
+                                                      BatchProperties properties,
+                                                      ObjectMapper objectMapper) {
+        BatchProperties.Rest rest = properties.getRest();
+        if (!rest.isCacheEnabled()) {
+            return new RestPagedPersonItemReader(restClient, rest.getBaseUrl(), rest.getPageSize());
+        }
+        Path cacheDir = rest.getCacheDir() != null
+                ? Path.of(rest.getCacheDir())
+                : Path.of(System.getProperty("java.io.tmpdir"), "batch-rest-cache");
+        return new RestPagedPersonItemReader(restClient, rest.getBaseUrl(), rest.getPageSize(),
+                new HttpPageCache(cacheDir, rest.getCacheMaxEntries(), rest.getCacheMaxAge()), objectMapper);
     }
 
     @Bean
@@ -176,19 +250,15 @@ public class BatchConfig {
 
     @Bean
     @StepScope
-    public FlatFileItemWriter<Person> matchCsvWriter(@Value("#{jobParameters['outFile']}") String outFile) {
+    public SegmentedFileItemWriter<Person> matchCsvWriter() {
+        String outFile = currentJobParameters().getString("outFile");
         BeanWrapperFieldExtractor<Person> extractor = new BeanWrapperFieldExtractor<>();
         extractor.setNames(new String[]{"firstName","lastName","email","age"});
         DelimitedLineAggregator<Person> aggregator = new DelimitedLineAggregator<>();
         aggregator.setDelimiter(",");
         aggregator.setFieldExtractor(extractor);
-        return new FlatFileItemWriterBuilder<Person>()
-                .name("matchCsvWriter")
-                .resource(new PathResource(outFile))
-                .lineAggregator(aggregator)
-                .headerCallback(writer -> writer.write("firstName,lastName,email,age"))
-                .append(false)
-                .build();
+        // Each worker thread appends to its own segment; segments are merged after the header at step end
+        return new SegmentedFileItemWriter<>("matchCsvWriter", Path.of(outFile), aggregator, "firstName,lastName,email,age");
     }
 
     @Bean
@@ -196,26 +266,62 @@ public class BatchConfig {
                                 PlatformTransactionManager transactionManager,
                                 RestPagedPersonItemReader restPersonReader,
                                 @org.springframework.beans.factory.annotation.Qualifier("personMatchProcessor") ItemProcessor<Person, Person> personMatchProcessor,
-                                FlatFileItemWriter<Person> matchCsvWriter,
+                                SegmentedFileItemWriter<Person> matchCsvWriter,
                                 BatchProperties properties,
-                                @org.springframework.beans.factory.annotation.Qualifier("batchTaskExecutor") TaskExecutor taskExecutor) {
+                                @org.springframework.beans.factory.annotation.Qualifier("batchTaskExecutor") TaskExecutor taskExecutor,
+                                JdbcProfilingListener jdbcProfilingListener) {
         return new StepBuilder("restCompareStep", jobRepository)
                 .<Person, Person>chunk(properties.getChunkSize(), transactionManager)
                 .reader(restPersonReader)
                 .processor(personMatchProcessor)
-                .writer(matchCsvWriter)
+                .writer(matchCsvWriter) // also registered as StepExecutionListener by the builder (merge in afterStep)
+                .listener((StepExecutionListener) jdbcProfilingListener)
+                .listener((ChunkListener) jdbcProfilingListener)
+                .listener((ItemWriteListener<Object>) jdbcProfilingListener)
                 .taskExecutor(taskExecutor)
                 .build();
     }
 
+    @Bean
+    @StepScope
+    public ReconciliationTasklet reconciliationTasklet(RestPagedPersonItemReader restPersonReader,
+                                                       PersonRepository personRepository,
+                                                       BatchProperties properties) {
+        String outFile = currentJobParameters().getString("outFile");
+        BatchProperties.Reconciliation cfg = properties.getReconciliation();
+        Path spillDir = cfg.getSpillDir() != null
+                ? Path.of(cfg.getSpillDir())
+                : Path.of(System.getProperty("java.io.tmpdir"), "batch-reconcile");
+        return new ReconciliationTasklet(restPersonReader, personRepository, Path.of(outFile), cfg.getSortBufferSize(), spillDir);
+    }
+
+    @Bean
+    public Step reconcileStep(JobRepository jobRepository,
+                              ReconciliationTasklet reconciliationTasklet,
+                              JdbcProfilingListener jdbcProfilingListener) {
+        // Single pass sort-merge join; no task executor, both sides are sequential scans.
+        // Read-only, so no DB transaction: it would pin a connection for the whole REST download.
+        return new StepBuilder("reconcileStep", jobRepository)
+                .tasklet(reconciliationTasklet, new ResourcelessTransactionManager())
+                .listener((StepExecutionListener) jdbcProfilingListener)
+                .listener((ChunkListener) jdbcProfilingListener)
+                .build();
+    }
+
     @Bean
     public Job importPersonJob(JobRepository jobRepository,
                                @org.springframework.beans.factory.annotation.Qualifier("csvToDbStep") Step csvToDbStep,
-                               @org.springframework.beans.factory.annotation.Qualifier("restCompareStep") Step restCompareStep) {
+                               @org.springframework.beans.factory.annotation.Qualifier("restCompareStep") Step restCompareStep,
+                               @org.springframework.beans.factory.annotation.Qualifier("reconcileStep") Step reconcileStep,
+                               BatchProperties properties,
+                               StartupTimeReporter startupTimeReporter,
+                               JobRunSummaryListener jobRunSummaryListener) {
         return new JobBuilder("importPersonJob", jobRepository)
                 .incrementer(new RunIdIncrementer())
+                .listener(startupTimeReporter)
+                .listener(jobRunSummaryListener)
                 .start(csvToDbStep)
-                .next(restCompareStep)
+                .next(properties.getReconciliation().isEnabled() ? reconcileStep : restCompareStep)
                 .build();
     }
 }
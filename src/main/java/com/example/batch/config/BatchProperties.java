@@ -2,11 +2,18 @@ package com.example.batch.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "batch")
 public class BatchProperties {
     private int chunkSize = 1000;
     private Concurrency concurrency = new Concurrency();
     private Rest rest = new Rest();
+    private Reconciliation reconciliation = new Reconciliation();
+    private Profiling profiling = new Profiling();
+    private Scheduler scheduler = new Scheduler();
+    private Schema schema = new Schema();
+    private JobRepository jobRepository = new JobRepository();
 
     public int getChunkSize() {
         return chunkSize;
@@ -32,6 +39,46 @@ public class BatchProperties {
         this.rest = rest;
     }
 
+    public Reconciliation getReconciliation() {
+        return reconciliation;
+    }
+
+    public void setReconciliation(Reconciliation reconciliation) {
+        this.reconciliation = reconciliation;
+    }
+
+    public Profiling getProfiling() {
+        return profiling;
+    }
+
+    public void setProfiling(Profiling profiling) {
+        this.profiling = profiling;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public void setSchema(Schema schema) {
+        this.schema = schema;
+    }
+
+    public JobRepository getJobRepository() {
+        return jobRepository;
+    }
+
+    public void setJobRepository(JobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
     public static class Concurrency {
         private boolean enabled = true;
         private int threads = 4;
@@ -56,10 +103,109 @@ public class BatchProperties {
     public static class Rest {
         private String baseUrl = "http://localhost:8080/api/persons";
         private int pageSize = 500;
+        /** Keep page bodies on disk and revalidate them with If-None-Match / If-Modified-Since. */
+        private boolean cacheEnabled = true;
+        private String cacheDir;
+        /** Cached pages kept at most; the least recently used ones are evicted beyond that. */
+        private int cacheMaxEntries = 10_000;
+        /** Cached pages not used for this long are evicted. */
+        private Duration cacheMaxAge = Duration.ofDays(7);
+        private int maxConnections = 20;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(30);
 
         public String getBaseUrl() { return baseUrl; }
         public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
         public int getPageSize() { return pageSize; }
         public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+        public boolean isCacheEnabled() { return cacheEnabled; }
+        public void setCacheEnabled(boolean cacheEnabled) { this.cacheEnabled = cacheEnabled; }
+        public String getCacheDir() { return cacheDir; }
+        public void setCacheDir(String cacheDir) { this.cacheDir = cacheDir; }
+        public int getCacheMaxEntries() { return cacheMaxEntries; }
+        public void setCacheMaxEntries(int cacheMaxEntries) { this.cacheMaxEntries = cacheMaxEntries; }
+        public Duration getCacheMaxAge() { return cacheMaxAge; }
+        public void setCacheMaxAge(Duration cacheMaxAge) { this.cacheMaxAge = cacheMaxAge; }
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+        public Duration getReadTimeout() { return readTimeout; }
+        public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+    }
+
+    public static class Reconciliation {
+        /** Use the sort-merge reconcileStep instead of the per-record lookup in restCompareStep. */
+        private boolean enabled = true;
+        private int sortBufferSize = 100_000;
+        private String spillDir;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getSortBufferSize() { return sortBufferSize; }
+        public void setSortBufferSize(int sortBufferSize) { this.sortBufferSize = sortBufferSize; }
+        public String getSpillDir() { return spillDir; }
+        public void setSpillDir(String spillDir) { this.spillDir = spillDir; }
+    }
+
+    public static class Profiling {
+        /** Wrap the DataSource and record per-statement JDBC round trips per step and chunk. */
+        private boolean enabled = false;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+
+    public static class Scheduler {
+        /** Uploads waiting for resources; further uploads are rejected with 429. */
+        private int queueCapacity = 20;
+        private int maxConcurrentJobs = 2;
+        /** Worker threads shared by all running jobs; 0 derives it from the connection pool size. */
+        private int globalThreads = 0;
+        /** Pool connections kept free for web requests and job launch bookkeeping. */
+        private int connectionReserve = 2;
+        /** Files up to this size are dispatched ahead of larger ones. */
+        private long smallFileBytes = 5L * 1024 * 1024;
+        /** After this long in the queue a job is dispatched in arrival order regardless of size. */
+        private Duration maxWait = Duration.ofMinutes(10);
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public int getMaxConcurrentJobs() { return maxConcurrentJobs; }
+        public void setMaxConcurrentJobs(int maxConcurrentJobs) { this.maxConcurrentJobs = maxConcurrentJobs; }
+        public int getGlobalThreads() { return globalThreads; }
+        public void setGlobalThreads(int globalThreads) { this.globalThreads = globalThreads; }
+        public int getConnectionReserve() { return connectionReserve; }
+        public void setConnectionReserve(int connectionReserve) { this.connectionReserve = connectionReserve; }
+        public long getSmallFileBytes() { return smallFileBytes; }
+        public void setSmallFileBytes(long smallFileBytes) { this.smallFileBytes = smallFileBytes; }
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+
+    public static class Schema {
+        /** Run the DDL scripts only when their recorded version differs (see SchemaVersionInitializer). */
+        private boolean versionedInit = false;
+
+        public boolean isVersionedInit() { return versionedInit; }
+        public void setVersionedInit(boolean versionedInit) { this.versionedInit = versionedInit; }
+    }
+
+    public static class JobRepository {
+        /**
+         * {@code jdbc}: Spring Batch metadata in the application database (restartable).
+         * {@code embedded}: metadata in a local H2 database, only a run summary goes to dbo.job_run_summary.
+         */
+        private String mode = "jdbc";
+        private String embeddedUrl = "jdbc:h2:mem:batch-metadata;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS dbo\\;SET SCHEMA dbo";
+        private int embeddedPoolSize = 10;
+
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
+        public boolean isEmbedded() { return "embedded".equalsIgnoreCase(mode); }
+        public String getEmbeddedUrl() { return embeddedUrl; }
+        public void setEmbeddedUrl(String embeddedUrl) { this.embeddedUrl = embeddedUrl; }
+        public int getEmbeddedPoolSize() { return embeddedPoolSize; }
+        public void setEmbeddedPoolSize(int embeddedPoolSize) { this.embeddedPoolSize = embeddedPoolSize; }
     }
 }
@@ -0,0 +1,76 @@
+package com.example.batch.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.batch.BatchDataSource;
+import org.springframework.boot.autoconfigure.batch.BatchTransactionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * {@code batch.job-repository.mode=embedded}: Spring Batch metadata (job/step executions and
+ * execution contexts, updated on every chunk commit) lives in a local H2 database with its own
+ * pool and transaction manager, so it no longer competes with business writes for MSSQL
+ * connections and locks. {@link com.example.batch.listener.JobRunSummaryListener} records one
+ * row per finished job in dbo.job_run_summary.
+ *
+ * With the default in-memory URL, executions do not survive a restart, so failed jobs cannot be
+ * restarted after the application stops; use {@code jdbc} mode for imports that must be restartable.
+ *
+ * Declaring a {@link BatchDataSource} makes Spring Boot back off from the application DataSource
+ * and transaction manager, so both are declared here as {@link Primary}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "batch.job-repository", name = "mode", havingValue = "embedded")
+public class EmbeddedJobRepositoryConfig {
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedJobRepositoryConfig.class);
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public JdbcTransactionManager transactionManager(DataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    @Bean
+    @BatchDataSource
+    public HikariDataSource batchDataSource(BatchProperties properties) {
+        BatchProperties.JobRepository cfg = properties.getJobRepository();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("HikariBatchMetadataPool");
+        dataSource.setJdbcUrl(cfg.getEmbeddedUrl());
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(cfg.getEmbeddedPoolSize());
+
+        // Created here rather than by spring.batch.jdbc.initialize-schema, which the fast-startup profile turns off
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql"));
+        populator.setContinueOnError(true);
+        populator.execute(dataSource);
+        log.info("Spring Batch metadata stored in embedded database {}", cfg.getEmbeddedUrl());
+        return dataSource;
+    }
+
+    @Bean
+    @BatchTransactionManager
+    public DataSourceTransactionManager batchTransactionManager(@BatchDataSource DataSource batchDataSource) {
+        return new DataSourceTransactionManager(batchDataSource);
+    }
+}
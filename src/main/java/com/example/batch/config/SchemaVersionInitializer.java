@@ -0,0 +1,150 @@
+package com.example.batch.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Versioned replacement for {@code spring.sql.init} and {@code spring.batch.jdbc.initialize-schema}.
+ *
+ * The schema version is a hash of the DDL scripts. When dbo.app_schema_version already
+ * records that hash, startup costs a single SELECT; otherwise the scripts run and the new
+ * version is recorded. Enabled with {@code batch.schema.versioned-init=true} (the
+ * fast-startup profile), which also switches the two Spring Boot initializers off.
+ *
+ * Containers starting together serialize on an {@code sp_getapplock} session lock: the DDL
+ * and the version row are written on the connection that holds it, and the version is checked
+ * again once the lock is granted, so only the first instance applies a new version.
+ */
+@Component
+public class SchemaVersionInitializer implements InitializingBean {
+    private static final Logger log = LoggerFactory.getLogger(SchemaVersionInitializer.class);
+
+    private static final String COMPONENT = "spring-batch-mssql-csv";
+    private static final Resource BATCH_SCHEMA = new ClassPathResource("org/springframework/batch/core/schema-sqlserver.sql");
+    private static final Resource PERSON_SCHEMA = new ClassPathResource("schema-person.sql");
+    private static final String LOCK_RESOURCE = COMPONENT + ":schema";
+    private static final int LOCK_TIMEOUT_MS = 120_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final BatchProperties properties;
+
+    public SchemaVersionInitializer(DataSource dataSource, JdbcTemplate jdbcTemplate, BatchProperties properties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!properties.getSchema().isVersionedInit()) {
+            return;
+        }
+        long start = System.nanoTime();
+        String expected = version(List.of(BATCH_SCHEMA, PERSON_SCHEMA));
+        String recorded = recordedVersion();
+        if (expected.equals(recorded)) {
+            log.info("Schema version {} already applied, skipping DDL ({} ms)", expected, (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+        log.info("Schema version {} differs from recorded {}, waiting for the schema lock", expected, recorded);
+
+        try (Connection connection = dataSource.getConnection()) {
+            // All statements below must run in the session that owns the lock
+            SingleConnectionDataSource locked = new SingleConnectionDataSource(connection, true);
+            JdbcTemplate template = new JdbcTemplate(locked);
+            acquireLock(template);
+            try {
+                recorded = recordedVersion(template);
+                if (expected.equals(recorded)) {
+                    log.info("Schema version {} applied by another instance meanwhile ({} ms)", expected, (System.nanoTime() - start) / 1_000_000);
+                    return;
+                }
+                applyDdl(locked, template, expected);
+            } finally {
+                template.execute((ConnectionCallback<Object>) con -> {
+                    try (PreparedStatement ps = con.prepareStatement("EXEC sp_releaseapplock @Resource = ?, @LockOwner = 'Session'")) {
+                        ps.setString(1, LOCK_RESOURCE);
+                        ps.execute();
+                    }
+                    return null;
+                });
+            }
+        }
+        log.info("Schema version {} applied in {} ms", expected, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void applyDdl(DataSource locked, JdbcTemplate template, String expected) {
+        // Batch DDL has no IF NOT EXISTS guards; existing tables are expected errors, as with initialize-schema: always
+        ResourceDatabasePopulator batch = new ResourceDatabasePopulator(BATCH_SCHEMA);
+        batch.setContinueOnError(true);
+        batch.execute(locked);
+        new ResourceDatabasePopulator(PERSON_SCHEMA).execute(locked);
+
+        template.execute("IF OBJECT_ID(N'[dbo].[app_schema_version]', N'U') IS NULL "
+                + "CREATE TABLE [dbo].[app_schema_version] ([component] NVARCHAR(100) NOT NULL PRIMARY KEY, "
+                + "[version] NVARCHAR(64) NOT NULL, [applied_at] DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME())");
+        template.update("MERGE dbo.app_schema_version WITH (HOLDLOCK) AS t "
+                + "USING (SELECT ? AS component, ? AS version) AS s ON t.component = s.component "
+                + "WHEN MATCHED THEN UPDATE SET version = s.version, applied_at = SYSUTCDATETIME() "
+                + "WHEN NOT MATCHED THEN INSERT (component, version) VALUES (s.component, s.version);",
+                COMPONENT, expected);
+    }
+
+    private static void acquireLock(JdbcTemplate template) {
+        Integer result = template.queryForObject("SET NOCOUNT ON; DECLARE @result INT; "
+                        + "EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', @LockOwner = 'Session', @LockTimeout = ?; "
+                        // pooled session: restore row counts, the repositories check them
+                        + "SET NOCOUNT OFF; SELECT @result",
+                Integer.class, LOCK_RESOURCE, LOCK_TIMEOUT_MS);
+        // 0 = granted, 1 = granted after waiting; negative = timeout, deadlock victim or error
+        if (result == null || result < 0) {
+            throw new IllegalStateException("Could not acquire schema lock " + LOCK_RESOURCE + " (sp_getapplock returned " + result + ")");
+        }
+    }
+
+    private String recordedVersion() {
+        return recordedVersion(jdbcTemplate);
+    }
+
+    private static String recordedVersion(JdbcTemplate template) {
+        try {
+            List<String> versions = template.queryForList(
+                    "SELECT version FROM dbo.app_schema_version WHERE component = ?", String.class, COMPONENT);
+            return versions.isEmpty() ? null : versions.get(0);
+        } catch (DataAccessException e) {
+            // First boot: the version table does not exist yet
+            return null;
+        }
+    }
+
+    private static String version(List<Resource> scripts) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (Resource script : scripts) {
+            try (InputStream in = script.getInputStream()) {
+                digest.update(StreamUtils.copyToByteArray(in));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.batch.listener;
+
+import com.example.batch.config.BatchProperties;
+import com.example.batch.repository.JobRunSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists a final summary of every job run to dbo.job_run_summary in the application database.
+ * In {@code batch.job-repository.mode=embedded} this is the only durable record of a run, since
+ * the Spring Batch metadata tables live in a local database; job execution ids are then local to
+ * that database and can repeat across application restarts.
+ */
+@Component
+public class JobRunSummaryListener implements JobExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger(JobRunSummaryListener.class);
+
+    private final JobRunSummaryRepository repository;
+    private final String repositoryMode;
+
+    public JobRunSummaryListener(JobRunSummaryRepository repository, BatchProperties properties) {
+        this.repository = repository;
+        this.repositoryMode = properties.getJobRepository().isEmbedded() ? "embedded" : "jdbc";
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        try {
+            repository.insert(jobExecution, repositoryMode);
+        } catch (Exception e) {
+            // A missing summary must not change the outcome of the job itself
+            log.error("Failed to store run summary for job execution {}", jobExecution.getId(), e);
+        }
+    }
+}
@@ -1,46 +1,105 @@
 package com.example.batch.listener;
 
+import com.example.batch.model.DeadLetterRecord;
 import com.example.batch.model.Person;
+import com.example.batch.service.DeadLetterStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.stereotype.Component;
 
 /**
- * Listener to track and log skipped records during batch processing.
- * Logs are written to logs/skipped-records.log
+ * Listener to track skipped records during batch processing.
+ * Every skip becomes a dead-letter record (see {@link DeadLetterStore}) that can be
+ * replayed once the data issue is fixed; a one-line summary is also written to
+ * logs/skipped-records.log. Stack traces are only logged at DEBUG.
  */
 @Component
-public class PersonSkipListener implements SkipListener<Person, Person> {
+public class PersonSkipListener implements SkipListener<Person, Person>, StepExecutionListener {
 
     private static final Logger log = LoggerFactory.getLogger(PersonSkipListener.class);
     private static final Logger skippedLog = LoggerFactory.getLogger("SKIPPED_RECORDS");
 
+    private final DeadLetterStore deadLetterStore;
+
+    public PersonSkipListener(DeadLetterStore deadLetterStore) {
+        this.deadLetterStore = deadLetterStore;
+    }
+
     @Override
     public void onSkipInRead(Throwable t) {
-        log.error("Skipped record during READ phase", t);
+        log.debug("Skipped record during READ phase", t);
         skippedLog.error("READ_PHASE_SKIP: {}", t.getMessage());
+        DeadLetterRecord record = newRecord("READ", t);
+        if (t instanceof FlatFileParseException parseException) {
+            record.setLineNumber(parseException.getLineNumber());
+            record.setRawLine(parseException.getInput());
+        }
+        deadLetterStore.add(record);
     }
 
     @Override
     public void onSkipInProcess(Person item, Throwable t) {
-        log.error("Skipped record during PROCESS phase: Person={}", item, t);
+        log.debug("Skipped record during PROCESS phase: Person={}", item, t);
         skippedLog.error("PROCESS_PHASE_SKIP: firstName={}, lastName={}, email={}, age={} | Reason: {}",
                 item.getFirstName(),
                 item.getLastName(),
                 item.getEmail(),
                 item.getAge(),
                 t.getMessage());
+        deadLetterStore.add(newRecord("PROCESS", item, t));
     }
 
     @Override
     public void onSkipInWrite(Person item, Throwable t) {
-        log.error("Skipped record during WRITE phase: Person={}", item, t);
+        log.debug("Skipped record during WRITE phase: Person={}", item, t);
         skippedLog.error("WRITE_PHASE_SKIP: firstName={}, lastName={}, email={}, age={} | Reason: {}",
                 item.getFirstName(),
                 item.getLastName(),
                 item.getEmail(),
                 item.getAge(),
                 t.getMessage());
+        deadLetterStore.add(newRecord("WRITE", item, t));
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        // Make the step's dead letters visible for replay as soon as the step ends
+        deadLetterStore.flush();
+        return null;
+    }
+
+    private static DeadLetterRecord newRecord(String phase, Person item, Throwable t) {
+        DeadLetterRecord record = newRecord(phase, t);
+        record.setFirstName(item.getFirstName());
+        record.setLastName(item.getLastName());
+        record.setEmail(item.getEmail());
+        record.setAge(item.getAge());
+        if (item.getItemCount() != null) {
+            // personReader skips one header line
+            record.setLineNumber(item.getItemCount() + 1);
+        }
+        return record;
+    }
+
+    private static DeadLetterRecord newRecord(String phase, Throwable t) {
+        DeadLetterRecord record = new DeadLetterRecord();
+        record.setPhase(phase);
+        record.setReason(t.getClass().getSimpleName() + ": " + t.getMessage());
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context != null) {
+            StepExecution stepExecution = context.getStepExecution();
+            record.setJobExecutionId(stepExecution.getJobExecutionId());
+            record.setRunId(stepExecution.getJobParameters().getString("runId"));
+            record.setStepName(stepExecution.getStepName());
+            record.setSourceFile(stepExecution.getJobParameters().getString("file"));
+        }
+        return record;
     }
 }
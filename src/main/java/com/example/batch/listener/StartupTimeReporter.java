@@ -0,0 +1,39 @@
+package com.example.batch.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs time from JVM start to application ready and to the first job launch.
+ * The STARTUP lines are what scripts/startup-benchmark.sh measures.
+ */
+@Component
+public class StartupTimeReporter implements ApplicationListener<ApplicationReadyEvent>, JobExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeReporter.class);
+
+    private final AtomicBoolean firstJob = new AtomicBoolean(true);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("STARTUP ready_ms={}", sinceJvmStart());
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        if (firstJob.compareAndSet(true, false)) {
+            log.info("STARTUP first_job_launch_ms={}", sinceJvmStart());
+        }
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.batch.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A record skipped during a batch step, kept in dbo.dead_letter_records for targeted replay.
+ */
+public class DeadLetterRecord {
+
+    public static final String PENDING = "PENDING";
+    public static final String REPLAYED = "REPLAYED";
+    public static final String FILTERED = "FILTERED";
+    public static final String FAILED = "FAILED";
+
+    private Long id;
+    private Long jobExecutionId;
+    private String runId;
+    private String stepName;
+    private String phase;
+    private String reason;
+    private String sourceFile;
+    private Integer lineNumber;
+    private String rawLine;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private Integer age;
+    private String status = PENDING;
+    private LocalDateTime createdAt;
+    private LocalDateTime replayedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getJobExecutionId() { return jobExecutionId; }
+    public void setJobExecutionId(Long jobExecutionId) { this.jobExecutionId = jobExecutionId; }
+    /** The {@code runId} job parameter (the upload's ticket id); unlike execution ids, never reused. */
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+    public String getStepName() { return stepName; }
+    public void setStepName(String stepName) { this.stepName = stepName; }
+    /** READ, PROCESS or WRITE. */
+    public String getPhase() { return phase; }
+    public void setPhase(String phase) { this.phase = phase; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+    public String getSourceFile() { return sourceFile; }
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
+    public Integer getLineNumber() { return lineNumber; }
+    public void setLineNumber(Integer lineNumber) { this.lineNumber = lineNumber; }
+    /** Original input line; only known for READ phase skips. */
+    public String getRawLine() { return rawLine; }
+    public void setRawLine(String rawLine) { this.rawLine = rawLine; }
+    public String getFirstName() { return firstName; }
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+    public String getLastName() { return lastName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+    public Integer getAge() { return age; }
+    public void setAge(Integer age) { this.age = age; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getReplayedAt() { return replayedAt; }
+    public void setReplayedAt(LocalDateTime replayedAt) { this.replayedAt = replayedAt; }
+}
@@ -1,17 +1,32 @@
 package com.example.batch.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.batch.item.ItemCountAware;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Person {
+public class Person implements ItemCountAware {
     private String firstName;
     private String lastName;
     private String email;
     private Integer age;
+
+    /** Position in the input file set by the reader (1 = first data line); not part of the record. */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Integer itemCount;
+
+    @Override
+    public void setItemCount(int count) {
+        this.itemCount = count;
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.batch.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Attributes JDBC round trips to steps and chunks.
+ *
+ * Each chunk runs inside its own profiler scope; on chunk end the scope is folded into a
+ * per-step total and checked for statements that ran once per written item (N+1 pattern).
+ * After the step the totals are logged and stored in the step execution context under
+ * {@code jdbc.*}. Does nothing unless profiling is enabled.
+ */
+@Component
+public class JdbcProfilingListener implements ChunkListener, ItemWriteListener<Object>, StepExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger(JdbcProfilingListener.class);
+    private static final int SUMMARY_TOP = 10;
+
+    private final JdbcStatementProfiler profiler;
+    private final Map<Long, StepTotals> steps = new ConcurrentHashMap<>();
+
+    public JdbcProfilingListener(JdbcStatementProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (!profiler.isActive()) return;
+        // Chunks run on worker threads with their own scopes; the step total only aggregates them
+        steps.put(stepExecution.getId(), new StepTotals(profiler.detachedScope(stepExecution.getStepName())));
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        if (!profiler.isActive()) return;
+        profiler.openScope("chunk");
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        JdbcStatementProfiler.Scope scope = profiler.currentScope();
+        if (scope != null) scope.setItems(items.size());
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        endChunk(context);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        endChunk(context);
+    }
+
+    private void endChunk(ChunkContext context) {
+        JdbcStatementProfiler.Scope chunk = profiler.currentScope();
+        if (chunk == null) return;
+        chunk.close();
+        StepTotals totals = steps.get(context.getStepContext().getStepExecution().getId());
+        if (totals == null) return;
+        totals.total.merge(chunk);
+        totals.chunks.incrementAndGet();
+        List<JdbcStatementProfiler.StatementStats> perItem = chunk.perItemStatements();
+        if (!perItem.isEmpty()) {
+            totals.suspectedChunks.incrementAndGet();
+            perItem.forEach(s -> totals.perItemSql.add(s.getSql()));
+            log.debug("Chunk of {} items issued {} statements; per-item: {}",
+                    chunk.getItems(), chunk.statementCount(), perItem);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        StepTotals totals = steps.remove(stepExecution.getId());
+        if (totals == null) return null;
+        JdbcStatementProfiler.Scope total = totals.total;
+        String summary = total.statements().stream()
+                .limit(SUMMARY_TOP)
+                .map(Object::toString)
+                .collect(Collectors.joining("\n"));
+
+        ExecutionContext ctx = stepExecution.getExecutionContext();
+        ctx.putLong("jdbc.statements", total.statementCount());
+        ctx.putLong("jdbc.totalMillis", total.totalNanos() / 1_000_000);
+        ctx.putLong("jdbc.chunks", totals.chunks.get());
+        ctx.putLong("jdbc.suspectedNPlusOneChunks", totals.suspectedChunks.get());
+        ctx.putString("jdbc.perItemStatements", String.join("\n", totals.perItemSql));
+        ctx.putString("jdbc.summary", summary);
+
+        log.info("JDBC profile for step {}: {} statements in {} ms over {} chunks, {} chunks with per-item statements\n{}",
+                stepExecution.getStepName(), total.statementCount(), total.totalNanos() / 1_000_000,
+                totals.chunks.get(), totals.suspectedChunks.get(), summary);
+        if (!totals.perItemSql.isEmpty()) {
+            log.warn("Step {} has statements whose count grows with chunk size (N+1): {}",
+                    stepExecution.getStepName(), totals.perItemSql);
+        }
+        return null;
+    }
+
+    private static final class StepTotals {
+        private final JdbcStatementProfiler.Scope total;
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong suspectedChunks = new AtomicLong();
+        private final Set<String> perItemSql = ConcurrentHashMap.newKeySet();
+
+        private StepTotals(JdbcStatementProfiler.Scope total) {
+            this.total = total;
+        }
+    }
+}
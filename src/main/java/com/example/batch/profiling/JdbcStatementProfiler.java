@@ -0,0 +1,226 @@
+package com.example.batch.profiling;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects per-statement JDBC round-trip statistics recorded by {@link ProfilingDataSource}.
+ *
+ * Statements are attributed to the innermost {@link Scope} open on the executing thread
+ * (and to all of its parents). {@link JdbcProfilingListener} opens one scope per chunk;
+ * tests can open their own to assert a round-trip budget (see VersioningPersonItemWriterRoundTripTest):
+ * <pre>
+ *   try (JdbcStatementProfiler.Scope scope = profiler.openScope("writer")) {
+ *       writer.write(chunk);
+ *       assertThat(scope.statementCount()).isLessThanOrEqualTo(chunk.size() + 3);
+ *   }
+ * </pre>
+ */
+@Component
+public class JdbcStatementProfiler {
+
+    private static final long[] BUCKET_UPPER_MICROS = {100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, Long.MAX_VALUE};
+    private static final String[] BUCKET_LABELS = {"<=100us", "<=500us", "<=1ms", "<=5ms", "<=10ms", "<=50ms", "<=100ms", "<=500ms", "<=1s", ">1s"};
+
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+    private final Scope unscoped = new Scope("unscoped", null);
+    private volatile boolean active;
+
+    /**
+     * True once a DataSource has been wrapped, i.e. statements are actually being recorded.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    void activate() {
+        this.active = true;
+    }
+
+    /**
+     * Opens a scope bound to the current thread. Scopes nest; closing restores the parent.
+     */
+    public Scope openScope(String name) {
+        Scope scope = new Scope(name, current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    /**
+     * A scope not bound to any thread, used to aggregate other scopes via {@link Scope#merge}.
+     */
+    public Scope detachedScope(String name) {
+        return new Scope(name, null);
+    }
+
+    /**
+     * The innermost scope open on this thread, or null.
+     */
+    public Scope currentScope() {
+        return current.get();
+    }
+
+    /**
+     * Statements executed outside any scope (web requests, job launch bookkeeping, ...).
+     */
+    public Scope unscoped() {
+        return unscoped;
+    }
+
+    void record(String sql, long nanos, long rows) {
+        Scope scope = current.get();
+        if (scope == null) {
+            unscoped.add(sql, nanos, rows);
+            return;
+        }
+        for (Scope s = scope; s != null; s = s.parent) {
+            s.add(sql, nanos, rows);
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+        private final String name;
+        private final Scope parent;
+        private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+        private volatile int items = -1;
+
+        private Scope(String name, Scope parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        void add(String sql, long nanos, long rows) {
+            statements.computeIfAbsent(sql, StatementStats::new).add(nanos, rows);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Number of items written in this scope, or -1 when unknown. */
+        public int getItems() {
+            return items;
+        }
+
+        public void setItems(int items) {
+            this.items = items;
+        }
+
+        public long statementCount() {
+            return statements.values().stream().mapToLong(StatementStats::getCount).sum();
+        }
+
+        /** Round trips of statements whose SQL starts with the given prefix (case-insensitive). */
+        public long statementCount(String sqlPrefix) {
+            return statements.values().stream()
+                    .filter(s -> s.getSql().regionMatches(true, 0, sqlPrefix, 0, sqlPrefix.length()))
+                    .mapToLong(StatementStats::getCount)
+                    .sum();
+        }
+
+        public long totalNanos() {
+            return statements.values().stream().mapToLong(StatementStats::getTotalNanos).sum();
+        }
+
+        public List<StatementStats> statements() {
+            List<StatementStats> list = new ArrayList<>(statements.values());
+            list.sort(Comparator.comparingLong(StatementStats::getTotalNanos).reversed());
+            return list;
+        }
+
+        /** Adds everything recorded in another scope into this one. */
+        public void merge(Scope other) {
+            other.statements.forEach((sql, stats) -> statements.computeIfAbsent(sql, StatementStats::new).merge(stats));
+        }
+
+        /**
+         * Statements that ran at least once per written item: their count grows with chunk size.
+         */
+        public List<StatementStats> perItemStatements() {
+            List<StatementStats> list = new ArrayList<>();
+            if (items <= 1) return list;
+            for (StatementStats stats : statements.values()) {
+                if (stats.getCount() >= items) list.add(stats);
+            }
+            return list;
+        }
+
+        @Override
+        public void close() {
+            if (current.get() == this) {
+                if (parent == null) current.remove(); else current.set(parent);
+            }
+        }
+    }
+
+    public static final class StatementStats {
+        private final String sql;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_UPPER_MICROS.length);
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long rows;
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        synchronized void add(long nanos, long affected) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (affected > 0) rows += affected;
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            for (int i = 0; i < BUCKET_UPPER_MICROS.length; i++) {
+                if (micros <= BUCKET_UPPER_MICROS[i]) {
+                    buckets.incrementAndGet(i);
+                    break;
+                }
+            }
+        }
+
+        synchronized void merge(StatementStats other) {
+            synchronized (other) {
+                count += other.count;
+                totalNanos += other.totalNanos;
+                maxNanos = Math.max(maxNanos, other.maxNanos);
+                rows += other.rows;
+                for (int i = 0; i < BUCKET_UPPER_MICROS.length; i++) {
+                    buckets.addAndGet(i, other.buckets.get(i));
+                }
+            }
+        }
+
+        public String getSql() { return sql; }
+        public synchronized long getCount() { return count; }
+        public synchronized long getTotalNanos() { return totalNanos; }
+        public synchronized long getMaxNanos() { return maxNanos; }
+        /** Rows affected by updates and batches; queries are not counted. */
+        public synchronized long getRows() { return rows; }
+
+        public String histogram() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                long n = buckets.get(i);
+                if (n == 0) continue;
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(BUCKET_LABELS[i]).append(':').append(n);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public synchronized String toString() {
+            double avgMs = count == 0 ? 0 : totalNanos / (double) count / 1_000_000;
+            return String.format("count=%d avg=%.2fms max=%.2fms rows=%d [%s] %s",
+                    count, avgMs, maxNanos / 1_000_000.0, rows, histogram(), sql);
+        }
+    }
+}
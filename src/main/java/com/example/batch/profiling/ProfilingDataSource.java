@@ -0,0 +1,129 @@
+package com.example.batch.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource wrapper that times every statement execution (one JDBC round trip) and
+ * reports it to a {@link JdbcStatementProfiler}. Connections and statements are wrapped
+ * in JDK proxies; everything except the execute* methods is passed straight through.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    private final JdbcStatementProfiler profiler;
+
+    public ProfilingDataSource(DataSource target, JdbcStatementProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection target) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(target));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(),
+                        new Class<?>[]{type}, new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private String batchSql;
+
+        private StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length == 1 && args[0] instanceof String s) {
+                batchSql = s;
+            }
+            if (!name.startsWith("execute")) {
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+            String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s
+                    : preparedSql != null ? preparedSql : batchSql;
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = ProfilingDataSource.invoke(target, method, args);
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                profiler.record(normalize(sql), elapsed, rowsAffected(result));
+            }
+        }
+
+        private long rowsAffected(Object result) throws SQLException {
+            if (result instanceof Integer n) return n;
+            if (result instanceof Long n) return n;
+            if (result instanceof int[] counts) {
+                long sum = 0;
+                for (int c : counts) if (c > 0) sum += c;
+                return sum;
+            }
+            if (result instanceof long[] counts) {
+                long sum = 0;
+                for (long c : counts) if (c > 0) sum += c;
+                return sum;
+            }
+            if (Boolean.FALSE.equals(result)) return target.getUpdateCount();
+            return -1;
+        }
+    }
+
+    private static String normalize(String sql) {
+        if (sql == null) return "<unknown>";
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.batch.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every DataSource bean in a {@link ProfilingDataSource} when
+ * {@code batch.profiling.enabled=true}. Off by default, so the normal path pays nothing.
+ * The flag is read from the Environment because post-processors are created before
+ * {@code BatchProperties} is bound.
+ */
+@Component
+public class ProfilingDataSourcePostProcessor implements BeanPostProcessor, EnvironmentAware, BeanFactoryAware {
+    private static final Logger log = LoggerFactory.getLogger(ProfilingDataSourcePostProcessor.class);
+
+    private Environment environment;
+    private BeanFactory beanFactory;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProfilingDataSource) {
+            return bean;
+        }
+        if (!environment.getProperty("batch.profiling.enabled", Boolean.class, false)) {
+            return bean;
+        }
+        JdbcStatementProfiler profiler = beanFactory.getBean(JdbcStatementProfiler.class);
+        profiler.activate();
+        log.info("JDBC statement profiling enabled for DataSource '{}'", beanName);
+        return new ProfilingDataSource(dataSource, profiler);
+    }
+}
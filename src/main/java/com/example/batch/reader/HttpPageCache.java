@@ -0,0 +1,169 @@
+package com.example.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of REST page bodies keyed by URL, stored with the validators
+ * (ETag / Last-Modified) needed to revalidate them with a conditional request.
+ * Each entry is a {@code <sha256>.body} file plus a {@code <sha256>.meta} properties file;
+ * both are written to a temp file first and moved into place.
+ *
+ * The cache is bounded by entry count and age. Reading an entry refreshes its meta file's
+ * modification time; every few writes, entries older than {@code maxAge} and the least recently
+ * used ones beyond {@code maxEntries} are deleted, along with temp files left by crashed writes.
+ */
+public class HttpPageCache {
+    private static final Logger log = LoggerFactory.getLogger(HttpPageCache.class);
+
+    private final Path dir;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final int evictEvery;
+    private final AtomicInteger writes = new AtomicInteger();
+
+    public HttpPageCache(Path dir, int maxEntries, Duration maxAge) {
+        Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+        Assert.isTrue(maxAge != null && !maxAge.isNegative() && !maxAge.isZero(), "maxAge must be positive");
+        this.dir = dir;
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+        // Listing the directory on every write would be quadratic over a large download
+        this.evictEvery = Math.max(1, Math.min(100, maxEntries / 10));
+    }
+
+    public Optional<Entry> get(String url) {
+        String key = key(url);
+        Path meta = dir.resolve(key + ".meta");
+        Path body = dir.resolve(key + ".body");
+        if (!Files.exists(meta) || !Files.exists(body)) {
+            return Optional.empty();
+        }
+        try (InputStream in = Files.newInputStream(meta)) {
+            Properties props = new Properties();
+            props.load(in);
+            if (!url.equals(props.getProperty("url"))) {
+                return Optional.empty();
+            }
+            Entry entry = new Entry(props.getProperty("etag"), props.getProperty("lastModified"), Files.readAllBytes(body));
+            Files.setLastModifiedTime(meta, FileTime.from(Instant.now()));
+            return Optional.of(entry);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable cache entry for {}", url, e);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String url, String etag, String lastModified, byte[] body) {
+        String key = key(url);
+        try {
+            Files.createDirectories(dir);
+            Properties props = new Properties();
+            props.setProperty("url", url);
+            if (etag != null) props.setProperty("etag", etag);
+            if (lastModified != null) props.setProperty("lastModified", lastModified);
+
+            Path bodyTmp = Files.createTempFile(dir, key, ".body.tmp");
+            Files.write(bodyTmp, body);
+            Path metaTmp = Files.createTempFile(dir, key, ".meta.tmp");
+            try (OutputStream out = Files.newOutputStream(metaTmp)) {
+                props.store(out, null);
+            }
+            // Body first: a meta file never points at a body from an older response
+            move(bodyTmp, dir.resolve(key + ".body"));
+            move(metaTmp, dir.resolve(key + ".meta"));
+        } catch (IOException e) {
+            log.warn("Failed to cache page {}", url, e);
+        }
+        // The first write of a run also clears out what earlier runs left behind
+        if (writes.getAndIncrement() % evictEvery == 0) {
+            evict();
+        }
+    }
+
+    void evict() {
+        Instant cutoff = Instant.now().minus(maxAge);
+        List<Path> metas = new ArrayList<>();
+        Map<Path, FileTime> times = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".meta")) {
+                    metas.add(file);
+                    times.put(file, Files.getLastModifiedTime(file));
+                } else if (name.endsWith(".tmp") && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up page cache {}", dir, e);
+            return;
+        }
+        metas.sort(Comparator.comparing(times::get));
+        int excess = metas.size() - maxEntries;
+        int evicted = 0;
+        for (int i = 0; i < metas.size(); i++) {
+            Path meta = metas.get(i);
+            if (i >= excess && !times.get(meta).toInstant().isBefore(cutoff)) {
+                break;
+            }
+            String name = meta.getFileName().toString();
+            try {
+                // Meta first: an entry without its meta file is never read
+                Files.deleteIfExists(meta);
+                Files.deleteIfExists(meta.resolveSibling(name.substring(0, name.length() - ".meta".length()) + ".body"));
+                evicted++;
+            } catch (IOException e) {
+                log.warn("Failed to evict cached page {}", meta, e);
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} cached pages from {}", evicted, dir);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Entry(String etag, String lastModified, byte[] body) {
+    }
+}
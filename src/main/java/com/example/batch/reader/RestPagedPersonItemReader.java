@@ -7,14 +7,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStream;
 import org.springframework.batch.item.ItemStreamReader;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A page-by-page REST reader that calls endpoints like:
@@ -27,6 +35,10 @@ import java.util.List;
  *   "totalElements": 11000,
  *   "totalPages": 22
  * }
+ *
+ * With an {@link HttpPageCache}, every page is fetched conditionally (If-None-Match /
+ * If-Modified-Since from the cached validators); on 304 Not Modified the cached body is
+ * parsed instead, so an unchanged source costs one round trip per page and no transfer.
  */
 public class RestPagedPersonItemReader implements ItemStreamReader<Person>, ItemStream {
     private static final Logger log = LoggerFactory.getLogger(RestPagedPersonItemReader.class);
@@ -34,18 +46,29 @@ public class RestPagedPersonItemReader implements ItemStreamReader<Person>, Item
     private final RestClient restClient;
     private final String baseUrl;
     private final int pageSize;
+    private final HttpPageCache cache;
+    private final ObjectMapper objectMapper;
 
     private int page = 0;
     private boolean finished = false;
     private Deque<Person> buffer = new ArrayDeque<>();
     private long totalElements = -1;
+    private int notModifiedPages = 0;
 
     public RestPagedPersonItemReader(RestClient restClient, String baseUrl, int pageSize) {
+        this(restClient, baseUrl, pageSize, null, null);
+    }
+
+    public RestPagedPersonItemReader(RestClient restClient, String baseUrl, int pageSize,
+                                     @Nullable HttpPageCache cache, @Nullable ObjectMapper objectMapper) {
         Assert.notNull(restClient, "restClient must not be null");
         Assert.hasText(baseUrl, "baseUrl must not be empty");
+        Assert.isTrue(cache == null || objectMapper != null, "objectMapper is required when a cache is used");
         this.restClient = restClient;
         this.baseUrl = baseUrl;
         this.pageSize = pageSize;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -63,6 +86,7 @@ public class RestPagedPersonItemReader implements ItemStreamReader<Person>, Item
         }
         this.buffer.clear();
         this.totalElements = -1;
+        this.notModifiedPages = 0;
     }
 
     @Override
@@ -75,7 +99,12 @@ public class RestPagedPersonItemReader implements ItemStreamReader<Person>, Item
     @Override
     public void close() {
         buffer.clear();
-        log.info("Closed RestPagedPersonItemReader. Total pages read: {}", page);
+        if (cache != null) {
+            log.info("Closed RestPagedPersonItemReader. Total pages read: {} ({} not modified, served from cache)",
+                    page, notModifiedPages);
+        } else {
+            log.info("Closed RestPagedPersonItemReader. Total pages read: {}", page);
+        }
     }
 
     @Override
@@ -100,10 +129,12 @@ public class RestPagedPersonItemReader implements ItemStreamReader<Person>, Item
         log.debug("Fetching page {} from: {}", page, url);
 
         try {
-            PageResponse<Person> response = restClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<PageResponse<Person>>() {});
+            PageResponse<Person> response = cache != null
+                    ? fetchConditionally(url)
+                    : restClient.get()
+                            .uri(url)
+                            .retrieve()
+                            .body(new ParameterizedTypeReference<PageResponse<Person>>() {});
 
             if (response == null || response.getContent() == null || response.getContent().isEmpty()) {
                 log.info("No more data available. Finished reading at page {}", page);
@@ -134,6 +165,40 @@ public class RestPagedPersonItemReader implements ItemStreamReader<Person>, Item
         }
     }
 
+    private PageResponse<Person> fetchConditionally(String url) {
+        Optional<HttpPageCache.Entry> cached = cache.get(url);
+        return restClient.get()
+                .uri(url)
+                .headers(headers -> cached.ifPresent(entry -> {
+                    if (entry.etag() != null) headers.setIfNoneMatch(entry.etag());
+                    if (entry.lastModified() != null) headers.set(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified());
+                }))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached.isPresent()) {
+                        notModifiedPages++;
+                        log.debug("Page {} not modified, using cached body", page);
+                        return parse(cached.get().body());
+                    }
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new RestClientException("Unexpected status " + response.getStatusCode() + " for " + url);
+                    }
+                    byte[] body = StreamUtils.copyToByteArray(response.getBody());
+                    String etag = response.getHeaders().getETag();
+                    String lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+                    if (etag != null || lastModified != null) {
+                        cache.put(url, etag, lastModified, body);
+                    }
+                    return parse(body);
+                });
+    }
+
+    private PageResponse<Person> parse(byte[] body) throws IOException {
+        if (body.length == 0) {
+            return null;
+        }
+        return objectMapper.readValue(body, new TypeReference<PageResponse<Person>>() {});
+    }
+
     public long getTotalElements() {
         return totalElements;
     }
@@ -0,0 +1,279 @@
+package com.example.batch.reconcile;
+
+import com.example.batch.model.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts persons by email with bounded memory.
+ *
+ * {@link #sort} buffers up to {@code bufferSize} items. Input that ends within the buffer is
+ * sorted in memory (or returned as is when already in order). Larger input is written to runs
+ * in {@code spillDir}: while it keeps arriving in email order it is appended to a single run
+ * without sorting; once the order breaks, the rest is sorted in buffer-sized runs, and all runs
+ * are k-way merged. Either way the input is consumed completely before {@link #sort} returns.
+ * A sorter is used for one {@link #sort} call.
+ */
+public class ExternalPersonSorter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ExternalPersonSorter.class);
+
+    /**
+     * Order of the DB stream ({@code ORDER BY email_bin}, Latin1_General_BIN2): nvarchar values
+     * compared by UTF-16 code unit, which is {@link String#compareTo}. The collation ignores
+     * trailing spaces, which normalized emails do not have.
+     */
+    static final Comparator<String> EMAIL_ORDER = Comparator.naturalOrder();
+    static final Comparator<Person> BY_EMAIL = Comparator.comparing(Person::getEmail, EMAIL_ORDER);
+
+    private final int bufferSize;
+    private final Path spillDir;
+    private final List<Person> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final List<RunReader> openRuns = new ArrayList<>();
+
+    private Person last;
+    private boolean inOrder = true;
+    private long count;
+
+    public ExternalPersonSorter(int bufferSize, Path spillDir) {
+        Assert.isTrue(bufferSize > 0, "bufferSize must be positive");
+        Assert.notNull(spillDir, "spillDir must not be null");
+        this.bufferSize = bufferSize;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Reads the input to the end and returns it in email order.
+     */
+    public Iterator<Person> sort(Iterator<Person> input) {
+        while (buffer.size() < bufferSize && input.hasNext()) {
+            add(input.next());
+        }
+        if (!input.hasNext()) {
+            if (!inOrder) {
+                buffer.sort(BY_EMAIL);
+            }
+            return buffer.iterator();
+        }
+        if (inOrder) {
+            appendSortedRun(input);
+        }
+        while (input.hasNext()) {
+            add(input.next());
+            if (buffer.size() >= bufferSize) {
+                spill();
+            }
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        log.info("Merging {} sorted runs ({} persons, {}) from {}",
+                runs.size(), count, inOrder ? "arrived in email order" : "sorted by email", spillDir);
+        try {
+            for (Path run : runs) {
+                openRuns.add(new RunReader(run));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open sort runs in " + spillDir, e);
+        }
+        return new MergingIterator(openRuns);
+    }
+
+    /**
+     * Persons taken from the input.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * True when every item taken from the input was already in email order.
+     */
+    public boolean arrivedSorted() {
+        return inOrder;
+    }
+
+    private void add(Person person) {
+        Assert.notNull(person.getEmail(), "email must not be null");
+        if (last != null && BY_EMAIL.compare(last, person) > 0) {
+            inOrder = false;
+        }
+        last = person;
+        buffer.add(person);
+        count++;
+    }
+
+    @Override
+    public void close() {
+        for (RunReader reader : openRuns) {
+            reader.close();
+        }
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                log.warn("Failed to delete sort run {}", run, e);
+            }
+        }
+        openRuns.clear();
+        runs.clear();
+        buffer.clear();
+    }
+
+    /**
+     * Writes the (ordered) buffer and then the input for as long as it stays in email order to
+     * one run. The first item out of order is left in the buffer for the sorting runs.
+     */
+    private void appendSortedRun(Iterator<Person> input) {
+        long appended = buffer.size();
+        try (RunWriter out = new RunWriter()) {
+            for (Person p : buffer) {
+                out.write(p);
+            }
+            buffer.clear();
+            while (input.hasNext()) {
+                add(input.next());
+                if (!inOrder) {
+                    break;
+                }
+                out.write(buffer.remove(0));
+                appended++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill sort run to " + spillDir, e);
+        }
+        if (inOrder) {
+            log.info("Input in email order beyond {} persons, wrote it to a single run without sorting", bufferSize);
+        } else {
+            log.info("Input left email order after {} persons, sorting the rest in runs of {}", appended, bufferSize);
+        }
+    }
+
+    private void spill() {
+        buffer.sort(BY_EMAIL);
+        try (RunWriter out = new RunWriter()) {
+            for (Person p : buffer) {
+                out.write(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill sort run to " + spillDir, e);
+        }
+        buffer.clear();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private final class RunWriter implements Closeable {
+        private final Path run;
+        private final DataOutputStream out;
+        private long written;
+
+        private RunWriter() throws IOException {
+            Files.createDirectories(spillDir);
+            this.run = Files.createTempFile(spillDir, "person-sort-", ".run");
+            runs.add(run);
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 64 * 1024));
+        }
+
+        private void write(Person p) throws IOException {
+            writeNullable(out, p.getFirstName());
+            writeNullable(out, p.getLastName());
+            out.writeUTF(p.getEmail());
+            out.writeBoolean(p.getAge() != null);
+            if (p.getAge() != null) out.writeInt(p.getAge());
+            written++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            log.debug("Spilled sort run {} with {} persons", run, written);
+        }
+    }
+
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private Person head;
+
+        private RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 64 * 1024));
+            advance();
+        }
+
+        private void advance() throws IOException {
+            try {
+                String firstName = readNullable(in);
+                String lastName = readNullable(in);
+                String email = in.readUTF();
+                Integer age = in.readBoolean() ? in.readInt() : null;
+                head = Person.builder().firstName(firstName).lastName(lastName).email(email).age(age).build();
+            } catch (EOFException e) {
+                head = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // run file is deleted right after
+            }
+        }
+    }
+
+    private static final class MergingIterator implements Iterator<Person> {
+        private final PriorityQueue<RunReader> queue =
+                new PriorityQueue<>(Comparator.comparing((RunReader r) -> r.head, BY_EMAIL));
+
+        private MergingIterator(List<RunReader> readers) {
+            for (RunReader reader : readers) {
+                if (reader.head != null) queue.add(reader);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Person next() {
+            RunReader reader = queue.poll();
+            if (reader == null) throw new NoSuchElementException();
+            Person next = reader.head;
+            try {
+                reader.advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read sort run", e);
+            }
+            if (reader.head != null) queue.add(reader);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.batch.reconcile;
+
+import com.example.batch.model.Person;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The four CSV outputs of a reconciliation run. The matched file keeps the layout of the
+ * former match output; the others are written next to it with a category suffix:
+ * <pre>
+ *   {base}.csv                    exact matches
+ *   {base}_mismatched.csv         same email, differing fields (source and DB values)
+ *   {base}_missing_in_db.csv      present in the REST source only
+ *   {base}_missing_in_source.csv  current in dbo.persons only
+ * </pre>
+ */
+public class ReconciliationReport implements Closeable {
+    private static final String PERSON_HEADER = "firstName,lastName,email,age";
+
+    private final Path matchedFile;
+    private final BufferedWriter matched;
+    private final BufferedWriter mismatched;
+    private final BufferedWriter missingInDb;
+    private final BufferedWriter missingInSource;
+
+    private long matchedCount;
+    private long mismatchedCount;
+    private long missingInDbCount;
+    private long missingInSourceCount;
+
+    public ReconciliationReport(Path matchedFile) throws IOException {
+        this.matchedFile = matchedFile;
+        Files.createDirectories(matchedFile.toAbsolutePath().getParent());
+        this.matched = open(matchedFile, PERSON_HEADER);
+        this.mismatched = open(sibling(matchedFile, "mismatched"),
+                "email,firstName,lastName,age,dbFirstName,dbLastName,dbAge,differingFields");
+        this.missingInDb = open(sibling(matchedFile, "missing_in_db"), PERSON_HEADER);
+        this.missingInSource = open(sibling(matchedFile, "missing_in_source"), PERSON_HEADER);
+    }
+
+    public void matched(Person source) throws IOException {
+        writePerson(matched, source);
+        matchedCount++;
+    }
+
+    public void mismatched(Person source, Person db, List<String> differingFields) throws IOException {
+        writeRow(mismatched, source.getEmail(), source.getFirstName(), source.getLastName(), source.getAge(),
+                db.getFirstName(), db.getLastName(), db.getAge(), String.join("|", differingFields));
+        mismatchedCount++;
+    }
+
+    public void missingInDb(Person source) throws IOException {
+        writePerson(missingInDb, source);
+        missingInDbCount++;
+    }
+
+    public void missingInSource(Person db) throws IOException {
+        writePerson(missingInSource, db);
+        missingInSourceCount++;
+    }
+
+    public long getMatchedCount() { return matchedCount; }
+    public long getMismatchedCount() { return mismatchedCount; }
+    public long getMissingInDbCount() { return missingInDbCount; }
+    public long getMissingInSourceCount() { return missingInSourceCount; }
+
+    public Path getMatchedFile() { return matchedFile; }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (BufferedWriter writer : new BufferedWriter[]{matched, mismatched, missingInDb, missingInSource}) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e; else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    static Path sibling(Path file, String category) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : ".csv";
+        return file.resolveSibling(base + "_" + category + ext);
+    }
+
+    private static BufferedWriter open(Path file, String header) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(header);
+        writer.newLine();
+        return writer;
+    }
+
+    private static void writePerson(BufferedWriter writer, Person p) throws IOException {
+        writeRow(writer, p.getFirstName(), p.getLastName(), p.getEmail(), p.getAge());
+    }
+
+    private static void writeRow(BufferedWriter writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(escape(values[i]));
+        }
+        writer.newLine();
+    }
+
+    private static String escape(Object value) {
+        if (value == null) return "";
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
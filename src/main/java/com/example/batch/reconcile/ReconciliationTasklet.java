@@ -0,0 +1,199 @@
+package com.example.batch.reconcile;
+
+import com.example.batch.model.Person;
+import com.example.batch.repository.PersonRepository;
+import com.example.batch.repository.PersonRepository.CurrentPerson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Sort-merge reconciliation of the REST source against the current rows in dbo.persons.
+ *
+ * The DB side is streamed in email order straight from SQL Server; the REST side goes
+ * through {@link ExternalPersonSorter}. Both sides are then joined in a single pass,
+ * replacing one DB lookup per REST record with one sequential scan.
+ *
+ * Source records are normalized like {@code personProcessor} does before persons are stored
+ * (names trimmed, email trimmed and lower case), so both sides compare in the same
+ * {@code email_bin} order and formatting alone does not count as a mismatch.
+ *
+ * The step runs without a database transaction and the DB stream is only opened for the merge:
+ * the source is read completely (and spilled when it does not fit the sort buffer) before any
+ * connection is taken.
+ */
+public class ReconciliationTasklet implements Tasklet {
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationTasklet.class);
+
+    private final ItemStreamReader<Person> sourceReader;
+    private final PersonRepository personRepository;
+    private final Path matchedFile;
+    private final int sortBufferSize;
+    private final Path spillDir;
+
+    public ReconciliationTasklet(ItemStreamReader<Person> sourceReader,
+                                 PersonRepository personRepository,
+                                 Path matchedFile,
+                                 int sortBufferSize,
+                                 Path spillDir) {
+        this.sourceReader = sourceReader;
+        this.personRepository = personRepository;
+        this.matchedFile = matchedFile;
+        this.sortBufferSize = sortBufferSize;
+        this.spillDir = spillDir;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        try (SourceIterator source = new SourceIterator(sourceReader);
+             ExternalPersonSorter sorter = new ExternalPersonSorter(sortBufferSize, spillDir)) {
+            Iterator<Person> sorted = sorter.sort(source);
+            log.info("Read {} source persons ({}), {} without email ignored",
+                    sorter.size(), sorter.arrivedSorted() ? "already in email order" : "sorted by email", source.getWithoutEmail());
+            for (long i = 0; i < source.getReadCount(); i++) {
+                contribution.incrementReadCount();
+            }
+
+            try (ReconciliationReport report = new ReconciliationReport(matchedFile);
+                 Stream<CurrentPerson> dbRows = personRepository.streamCurrentOrderedByEmail()) {
+                mergeJoin(sorted, dbRows.iterator(), report);
+
+                ExecutionContext ctx = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+                ctx.putLong("reconcile.matched", report.getMatchedCount());
+                ctx.putLong("reconcile.mismatched", report.getMismatchedCount());
+                ctx.putLong("reconcile.missingInDb", report.getMissingInDbCount());
+                ctx.putLong("reconcile.missingInSource", report.getMissingInSourceCount());
+                contribution.incrementWriteCount(report.getMatchedCount() + report.getMismatchedCount()
+                        + report.getMissingInDbCount() + report.getMissingInSourceCount());
+                log.info("Reconciliation finished: matched={}, mismatched={}, missingInDb={}, missingInSource={} -> {}",
+                        report.getMatchedCount(), report.getMismatchedCount(),
+                        report.getMissingInDbCount(), report.getMissingInSourceCount(), report.getMatchedFile());
+            }
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    static void mergeJoin(Iterator<Person> source, Iterator<? extends Person> db, ReconciliationReport report) throws Exception {
+        Person src = next(source);
+        Person cur = next(db);
+        while (src != null || cur != null) {
+            int c = src == null ? 1 : cur == null ? -1 : ExternalPersonSorter.EMAIL_ORDER.compare(src.getEmail(), cur.getEmail());
+            if (c < 0) {
+                report.missingInDb(src);
+                src = next(source);
+            } else if (c > 0) {
+                report.missingInSource(cur);
+                cur = next(db);
+            } else {
+                List<String> diff = differingFields(src, cur);
+                if (diff.isEmpty()) {
+                    report.matched(src);
+                } else {
+                    report.mismatched(src, cur, diff);
+                }
+                // Emails are unique in the current table; duplicate source records all compare to the same row
+                String email = cur.getEmail();
+                src = next(source);
+                if (src == null || !email.equals(src.getEmail())) {
+                    cur = next(db);
+                }
+            }
+        }
+    }
+
+    private static List<String> differingFields(Person source, Person db) {
+        List<String> fields = new ArrayList<>(3);
+        if (!Objects.equals(source.getFirstName(), db.getFirstName())) fields.add("firstName");
+        if (!Objects.equals(source.getLastName(), db.getLastName())) fields.add("lastName");
+        if (!Objects.equals(source.getAge(), db.getAge())) fields.add("age");
+        return fields;
+    }
+
+    /**
+     * Same normalization as {@code personProcessor} applies before persons are written.
+     */
+    static void normalize(Person p) {
+        if (p.getFirstName() != null) p.setFirstName(p.getFirstName().trim());
+        if (p.getLastName() != null) p.setLastName(p.getLastName().trim());
+        if (p.getEmail() != null) p.setEmail(p.getEmail().trim().toLowerCase());
+    }
+
+    private static <T> T next(Iterator<T> it) {
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * The source reader as an iterator of persons with a normalized email; opened on creation, one pass only.
+     */
+    private static final class SourceIterator implements Iterator<Person>, Closeable {
+        private final ItemStreamReader<Person> reader;
+        private Person next;
+        private boolean done;
+        private long readCount;
+        private long withoutEmail;
+
+        private SourceIterator(ItemStreamReader<Person> reader) {
+            this.reader = reader;
+            reader.open(new ExecutionContext());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                Person p = read();
+                if (p == null) {
+                    done = true;
+                } else {
+                    readCount++;
+                    normalize(p);
+                    if (p.getEmail() == null || p.getEmail().isEmpty()) {
+                        withoutEmail++;
+                    } else {
+                        next = p;
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Person next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Person p = next;
+            next = null;
+            return p;
+        }
+
+        private Person read() {
+            try {
+                return reader.read();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to read source", e);
+            }
+        }
+
+        long getReadCount() { return readCount; }
+        long getWithoutEmail() { return withoutEmail; }
+
+        @Override
+        public void close() {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.batch.repository;
+
+import com.example.batch.model.DeadLetterRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class DeadLetterRepository {
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeadLetterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<DeadLetterRecord> records) {
+        if (records.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO dbo.dead_letter_records(job_execution_id, step_name, phase, reason, source_file, line_number, raw_line, "
+                        + "first_name, last_name, email, age, status, run_id) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?)",
+                records, records.size(), (ps, r) -> {
+                    if (r.getJobExecutionId() == null) ps.setNull(1, Types.BIGINT); else ps.setLong(1, r.getJobExecutionId());
+                    ps.setString(2, r.getStepName());
+                    ps.setString(3, r.getPhase());
+                    ps.setString(4, truncate(r.getReason()));
+                    ps.setString(5, r.getSourceFile());
+                    if (r.getLineNumber() == null) ps.setNull(6, Types.INTEGER); else ps.setInt(6, r.getLineNumber());
+                    ps.setString(7, r.getRawLine());
+                    ps.setString(8, r.getFirstName());
+                    ps.setString(9, r.getLastName());
+                    ps.setString(10, r.getEmail());
+                    if (r.getAge() == null) ps.setNull(11, Types.INTEGER); else ps.setInt(11, r.getAge());
+                    ps.setString(12, r.getStatus());
+                    ps.setString(13, r.getRunId());
+                });
+    }
+
+    /**
+     * Records in the given status, optionally narrowed to one run, job execution, source file or set of ids.
+     */
+    public List<DeadLetterRecord> find(String status, String runId, Long jobExecutionId, String sourceFile, List<Long> ids, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT TOP (?) id, job_execution_id, run_id, step_name, phase, reason, source_file, line_number, "
+                + "raw_line, first_name, last_name, email, age, status, created_at, replayed_at FROM dbo.dead_letter_records WHERE status = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(limit);
+        args.add(status);
+        if (runId != null) {
+            sql.append(" AND run_id = ?");
+            args.add(runId);
+        }
+        if (jobExecutionId != null) {
+            sql.append(" AND job_execution_id = ?");
+            args.add(jobExecutionId);
+        }
+        if (sourceFile != null) {
+            sql.append(" AND source_file = ?");
+            args.add(sourceFile);
+        }
+        if (ids != null && !ids.isEmpty()) {
+            sql.append(" AND id IN (").append(String.join(",", Collections.nCopies(ids.size(), "?"))).append(")");
+            args.addAll(ids);
+        }
+        sql.append(" ORDER BY id");
+        return jdbcTemplate.query(sql.toString(), MAPPER, args.toArray());
+    }
+
+    public void updateStatus(List<Long> ids, String status) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "UPDATE dbo.dead_letter_records SET status = ?, replayed_at = SYSUTCDATETIME() WHERE id = ?",
+                ids, ids.size(), (ps, id) -> {
+                    ps.setString(1, status);
+                    ps.setLong(2, id);
+                });
+    }
+
+    public void markFailed(long id, String reason) {
+        jdbcTemplate.update("UPDATE dbo.dead_letter_records SET status = ?, reason = ?, replayed_at = SYSUTCDATETIME() WHERE id = ?",
+                DeadLetterRecord.FAILED, truncate(reason), id);
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null || reason.length() <= MAX_REASON_LENGTH) return reason;
+        return reason.substring(0, MAX_REASON_LENGTH);
+    }
+
+    private static final RowMapper<DeadLetterRecord> MAPPER = (rs, rowNum) -> {
+        DeadLetterRecord r = new DeadLetterRecord();
+        r.setId(rs.getLong("id"));
+        long jobExecutionId = rs.getLong("job_execution_id");
+        r.setJobExecutionId(rs.wasNull() ? null : jobExecutionId);
+        r.setRunId(rs.getString("run_id"));
+        r.setStepName(rs.getString("step_name"));
+        r.setPhase(rs.getString("phase"));
+        r.setReason(rs.getString("reason"));
+        r.setSourceFile(rs.getString("source_file"));
+        int line = rs.getInt("line_number");
+        r.setLineNumber(rs.wasNull() ? null : line);
+        r.setRawLine(rs.getString("raw_line"));
+        r.setFirstName(rs.getString("first_name"));
+        r.setLastName(rs.getString("last_name"));
+        r.setEmail(rs.getString("email"));
+        int age = rs.getInt("age");
+        r.setAge(rs.wasNull() ? null : age);
+        r.setStatus(rs.getString("status"));
+        r.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        r.setReplayedAt(rs.getObject("replayed_at", LocalDateTime.class));
+        return r;
+    };
+}
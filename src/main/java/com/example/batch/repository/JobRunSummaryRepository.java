@@ -0,0 +1,68 @@
+package com.example.batch.repository;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Repository
+public class JobRunSummaryRepository {
+    private static final int MAX_DESCRIPTION_LENGTH = 2500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobRunSummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * One row per finished job execution, with counts summed over its steps.
+     */
+    public void insert(JobExecution execution, String repositoryMode) {
+        long read = 0, write = 0, filter = 0, skip = 0, commit = 0, rollback = 0;
+        StringBuilder steps = new StringBuilder();
+        for (StepExecution step : execution.getStepExecutions()) {
+            read += step.getReadCount();
+            write += step.getWriteCount();
+            filter += step.getFilterCount();
+            skip += step.getSkipCount();
+            commit += step.getCommitCount();
+            rollback += step.getRollbackCount();
+            if (steps.length() > 0) steps.append("; ");
+            steps.append(step.getStepName()).append('=').append(step.getStatus())
+                    .append(" read=").append(step.getReadCount())
+                    .append(" write=").append(step.getWriteCount())
+                    .append(" filter=").append(step.getFilterCount())
+                    .append(" skip=").append(step.getSkipCount());
+        }
+        LocalDateTime start = execution.getStartTime();
+        LocalDateTime end = execution.getEndTime() != null ? execution.getEndTime() : LocalDateTime.now();
+        jdbcTemplate.update(
+                "INSERT INTO dbo.job_run_summary(job_execution_id, run_id, job_instance_id, job_name, repository_mode, status, exit_code, "
+                        + "exit_description, job_parameters, start_time, end_time, duration_ms, read_count, write_count, filter_count, "
+                        + "skip_count, commit_count, rollback_count, step_summary) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
+                execution.getId(),
+                execution.getJobParameters().getString("runId"),
+                execution.getJobInstance().getInstanceId(),
+                execution.getJobInstance().getJobName(),
+                repositoryMode,
+                String.valueOf(execution.getStatus()),
+                execution.getExitStatus().getExitCode(),
+                truncate(execution.getExitStatus().getExitDescription()),
+                truncate(execution.getJobParameters().toString()),
+                start != null ? Timestamp.valueOf(start) : null,
+                Timestamp.valueOf(end),
+                start != null ? Duration.between(start, end).toMillis() : null,
+                read, write, filter, skip, commit, rollback,
+                steps.toString());
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= MAX_DESCRIPTION_LENGTH) return value;
+        return value.substring(0, MAX_DESCRIPTION_LENGTH);
+    }
+}
@@ -1,15 +1,27 @@
 package com.example.batch.repository;
 
 import com.example.batch.model.Person;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Person storage split into two tables:
+ * dbo.persons holds exactly one (current) row per email, dbo.persons_history
+ * receives every superseded version. Lookups only ever touch the compact
+ * current table, so they keep their speed as history accumulates.
+ */
 @Repository
 public class PersonRepository {
     private final JdbcTemplate jdbcTemplate;
@@ -19,7 +31,7 @@ public class PersonRepository {
     }
 
     public Optional<CurrentPerson> findCurrentByEmail(String email) {
-        String sql = "SELECT TOP 1 id, first_name, last_name, email, age, version, updated_at FROM dbo.persons WHERE email = ? AND is_current = 1";
+        String sql = "SELECT id, first_name, last_name, email, age, version, updated_at FROM dbo.persons WHERE email = ?";
         return jdbcTemplate.query(sql, rs -> {
             if (rs.next()) {
                 return Optional.of(mapCurrent(rs));
@@ -28,15 +40,118 @@ public class PersonRepository {
         }, email);
     }
 
-    public void markAllNotCurrent(String email) {
-        jdbcTemplate.update("UPDATE dbo.persons SET is_current = 0 WHERE email = ? AND is_current = 1", email);
+    /**
+     * Streams every current row ordered by email. email_bin is a persisted BIN2 copy of email, so
+     * SQL Server orders by code point, the same order as {@link String#compareTo} on the Java side
+     * of a merge join, and reads IX_persons_email_bin in order instead of sorting in tempdb.
+     * The returned stream holds a connection and must be closed.
+     */
+    public Stream<CurrentPerson> streamCurrentOrderedByEmail() {
+        String sql = "SELECT id, first_name, last_name, email, age, version, updated_at FROM dbo.persons "
+                + "ORDER BY email_bin";
+        return jdbcTemplate.queryForStream(sql, (rs, rowNum) -> mapCurrent(rs));
     }
 
-    public void insert(Person person, int version) {
-        jdbcTemplate.update(
-                "INSERT INTO dbo.persons(first_name, last_name, email, age, version, is_current, updated_at) VALUES(?,?,?,?,?,1,SYSUTCDATETIME())",
-                person.getFirstName(), person.getLastName(), person.getEmail(), person.getAge(), version
-        );
+    /**
+     * All superseded versions of a person, oldest first. The current version is not included.
+     */
+    public List<PersonVersion> findHistoryByEmail(String email) {
+        String sql = "SELECT person_id, first_name, last_name, email, age, version, valid_from, superseded_at "
+                + "FROM dbo.persons_history WHERE email = ? ORDER BY version";
+        return jdbcTemplate.query(sql, HISTORY_MAPPER, email);
+    }
+
+    /**
+     * A single version of a person, looked up in the current table first and in history otherwise.
+     */
+    public Optional<PersonVersion> findVersion(String email, int version) {
+        List<PersonVersion> current = jdbcTemplate.query(
+                "SELECT id AS person_id, first_name, last_name, email, age, version, updated_at AS valid_from, CAST(NULL AS DATETIME2) AS superseded_at "
+                        + "FROM dbo.persons WHERE email = ? AND version = ?",
+                HISTORY_MAPPER, email, version);
+        if (!current.isEmpty()) {
+            return Optional.of(current.get(0));
+        }
+        List<PersonVersion> history = jdbcTemplate.query(
+                "SELECT person_id, first_name, last_name, email, age, version, valid_from, superseded_at "
+                        + "FROM dbo.persons_history WHERE email = ? AND version = ?",
+                HISTORY_MAPPER, email, version);
+        return history.isEmpty() ? Optional.empty() : Optional.of(history.get(0));
+    }
+
+    /**
+     * Moves the given superseded versions into dbo.persons_history in one JDBC batch.
+     * Rows without an updatedAt (versions created and superseded within the same chunk)
+     * are stamped with the current time.
+     */
+    public void archiveVersions(List<CurrentPerson> superseded) {
+        if (superseded.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO dbo.persons_history(person_id, first_name, last_name, email, age, version, valid_from) "
+                        + "VALUES(?,?,?,?,?,?,COALESCE(?, SYSUTCDATETIME()))",
+                superseded, superseded.size(), (ps, p) -> {
+                    if (p.getId() == null) ps.setNull(1, Types.INTEGER); else ps.setInt(1, p.getId());
+                    ps.setString(2, p.getFirstName());
+                    ps.setString(3, p.getLastName());
+                    ps.setString(4, p.getEmail());
+                    if (p.getAge() == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, p.getAge());
+                    ps.setInt(6, p.getVersion());
+                    ps.setTimestamp(7, p.getUpdatedAt() == null ? null : Timestamp.valueOf(p.getUpdatedAt()));
+                });
+    }
+
+    /**
+     * Inserts first versions of new persons into the current table in one JDBC batch.
+     * A duplicate email means another chunk inserted the same person after it was looked up,
+     * which is reported as an {@link OptimisticLockingFailureException} like a lost update.
+     */
+    public void insertCurrent(List<CurrentPerson> persons) {
+        if (persons.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO dbo.persons(first_name, last_name, email, age, version, updated_at) VALUES(?,?,?,?,?,SYSUTCDATETIME())",
+                    persons, persons.size(), (ps, p) -> {
+                        ps.setString(1, p.getFirstName());
+                        ps.setString(2, p.getLastName());
+                        ps.setString(3, p.getEmail());
+                        if (p.getAge() == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, p.getAge());
+                        ps.setInt(5, p.getVersion());
+                    });
+        } catch (DuplicateKeyException e) {
+            throw new OptimisticLockingFailureException("Person inserted concurrently by another chunk", e);
+        }
+    }
+
+    /**
+     * Overwrites current rows in place with their new version in one JDBC batch.
+     * Each row is only updated if it still holds the version the caller read ({@link CurrentPerson#getBaseVersion()});
+     * otherwise another chunk got there first and an {@link OptimisticLockingFailureException} is thrown.
+     * The caller is expected to have archived the previous version first.
+     */
+    public void updateCurrent(List<CurrentPerson> persons) {
+        if (persons.isEmpty()) return;
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE dbo.persons SET first_name = ?, last_name = ?, age = ?, version = ?, updated_at = SYSUTCDATETIME() "
+                        + "WHERE email = ? AND version = ?",
+                persons, persons.size(), (ps, p) -> {
+                    ps.setString(1, p.getFirstName());
+                    ps.setString(2, p.getLastName());
+                    if (p.getAge() == null) ps.setNull(3, Types.INTEGER); else ps.setInt(3, p.getAge());
+                    ps.setInt(4, p.getVersion());
+                    ps.setString(5, p.getEmail());
+                    ps.setInt(6, p.getBaseVersion());
+                });
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                CurrentPerson p = persons.get(i++);
+                // Statement.SUCCESS_NO_INFO (-2) means the driver did not report a count; only 0 is a conflict
+                if (count == 0) {
+                    throw new OptimisticLockingFailureException("Person " + p.getEmail()
+                            + " was changed concurrently (expected version " + p.getBaseVersion() + ")");
+                }
+            }
+        }
     }
 
     private static CurrentPerson mapCurrent(ResultSet rs) throws SQLException {
@@ -52,16 +167,52 @@ public class PersonRepository {
         return cp;
     }
 
+    private static final RowMapper<PersonVersion> HISTORY_MAPPER = (rs, rowNum) -> {
+        PersonVersion pv = new PersonVersion();
+        int personId = rs.getInt("person_id");
+        pv.setPersonId(rs.wasNull() ? null : personId);
+        pv.setFirstName(rs.getString("first_name"));
+        pv.setLastName(rs.getString("last_name"));
+        pv.setEmail(rs.getString("email"));
+        int age = rs.getInt("age");
+        pv.setAge(rs.wasNull() ? null : age);
+        pv.setVersion(rs.getInt("version"));
+        pv.setValidFrom(rs.getObject("valid_from", LocalDateTime.class));
+        pv.setSupersededAt(rs.getObject("superseded_at", LocalDateTime.class));
+        return pv;
+    };
+
     public static class CurrentPerson extends Person {
         private Integer id;
         private Integer version;
+        private Integer baseVersion;
         private LocalDateTime updatedAt;
 
         public Integer getId() { return id; }
         public void setId(Integer id) { this.id = id; }
         public Integer getVersion() { return version; }
         public void setVersion(Integer version) { this.version = version; }
+        /** Version of the row in dbo.persons this one replaces; null for rows read from the database. */
+        public Integer getBaseVersion() { return baseVersion; }
+        public void setBaseVersion(Integer baseVersion) { this.baseVersion = baseVersion; }
         public LocalDateTime getUpdatedAt() { return updatedAt; }
         public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     }
+
+    public static class PersonVersion extends Person {
+        private Integer personId;
+        private Integer version;
+        private LocalDateTime validFrom;
+        private LocalDateTime supersededAt;
+
+        public Integer getPersonId() { return personId; }
+        public void setPersonId(Integer personId) { this.personId = personId; }
+        public Integer getVersion() { return version; }
+        public void setVersion(Integer version) { this.version = version; }
+        public LocalDateTime getValidFrom() { return validFrom; }
+        public void setValidFrom(LocalDateTime validFrom) { this.validFrom = validFrom; }
+        /** Null when this is the current version. */
+        public LocalDateTime getSupersededAt() { return supersededAt; }
+        public void setSupersededAt(LocalDateTime supersededAt) { this.supersededAt = supersededAt; }
+    }
 }
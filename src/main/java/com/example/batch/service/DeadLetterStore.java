@@ -0,0 +1,126 @@
+package com.example.batch.service;
+
+import com.example.batch.model.DeadLetterRecord;
+import com.example.batch.repository.DeadLetterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous, batched writer for dbo.dead_letter_records.
+ *
+ * Skip listeners only enqueue; a background thread inserts whatever has accumulated
+ * every second (or as soon as a full batch is waiting) in one JDBC batch, outside the
+ * chunk transaction, so a rolled-back chunk does not lose its dead letters.
+ * {@link #flush()} drains synchronously and is called at step end. Records only leave the
+ * queue under the write lock, so once flush() returns every record added before it is stored.
+ */
+@Service
+public class DeadLetterStore implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterStore.class);
+    private static final Logger skippedLog = LoggerFactory.getLogger("SKIPPED_RECORDS");
+
+    private static final int BATCH_SIZE = 500;
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final DeadLetterRepository repository;
+    private final BlockingQueue<DeadLetterRecord> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object arrived = new Object();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public DeadLetterStore(DeadLetterRepository repository) {
+        this.repository = repository;
+        this.flusher = new Thread(this::flushLoop, "dead-letter-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public void add(DeadLetterRecord record) {
+        try {
+            if (!queue.offer(record, 5, TimeUnit.SECONDS)) {
+                skippedLog.error("DEAD_LETTER_DROPPED: phase={}, file={}, line={}, email={} | queue full",
+                        record.getPhase(), record.getSourceFile(), record.getLineNumber(), record.getEmail());
+                return;
+            }
+            // Partial batches are picked up by the flusher's timed wait; only a full batch wakes it early
+            if (queue.size() >= BATCH_SIZE) {
+                synchronized (arrived) {
+                    arrived.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes everything queued so far before returning.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            List<DeadLetterRecord> batch = new ArrayList<>(BATCH_SIZE);
+            while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        List<DeadLetterRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                // Wait without taking anything off the queue; only the write lock holder removes records
+                synchronized (arrived) {
+                    if (queue.size() < BATCH_SIZE) {
+                        arrived.wait(1000);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            writeLock.lock();
+            try {
+                if (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                    write(batch);
+                }
+            } finally {
+                batch.clear();
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void write(List<DeadLetterRecord> batch) {
+        try {
+            repository.insertAll(batch);
+            log.debug("Stored {} dead-letter records", batch.size());
+        } catch (Exception e) {
+            log.error("Failed to store {} dead-letter records", batch.size(), e);
+            for (DeadLetterRecord r : batch) {
+                skippedLog.error("DEAD_LETTER_LOST: phase={}, file={}, line={}, email={} | {}",
+                        r.getPhase(), r.getSourceFile(), r.getLineNumber(), r.getEmail(), r.getReason());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        flusher.interrupt();
+        flush();
+    }
+}
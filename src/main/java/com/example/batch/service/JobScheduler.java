@@ -0,0 +1,240 @@
+package com.example.batch.service;
+
+import com.example.batch.config.BatchProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for importPersonJob.
+ *
+ * Uploads are queued (bounded by {@code batch.scheduler.queue-capacity}) and dispatched
+ * when the {@link ResourceGovernor} can grant worker threads and connections. Each job's
+ * thread share is passed as the {@code threads} job parameter and caps its step executor.
+ * Small files are dispatched first; a job that has waited longer than
+ * {@code batch.scheduler.max-wait} is dispatched in arrival order regardless of size.
+ */
+@Service
+public class JobScheduler implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(JobScheduler.class);
+    private static final int TICKET_HISTORY = 500;
+
+    private final JobLauncher jobLauncher;
+    private final Job importPersonJob;
+    private final BatchProperties.Scheduler config;
+    private final int perJobThreads;
+    private final ResourceGovernor governor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<JobTicket> pending = new ArrayList<>();
+    private final Map<String, JobTicket> tickets = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JobTicket> eldest) {
+            return size() > TICKET_HISTORY && eldest.getValue().getFinishedAt() != null;
+        }
+    });
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ExecutorService runners;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public JobScheduler(JobLauncher jobLauncher,
+                        Job importPersonJob,
+                        BatchProperties properties,
+                        DataSource dataSource) {
+        this.jobLauncher = jobLauncher;
+        this.importPersonJob = importPersonJob;
+        this.config = properties.getScheduler();
+        this.perJobThreads = properties.getConcurrency().getThreads();
+
+        int connections = poolSize(dataSource) - config.getConnectionReserve();
+        int threads = config.getGlobalThreads() > 0
+                ? config.getGlobalThreads()
+                : Math.max(1, connections - config.getMaxConcurrentJobs());
+        this.governor = new ResourceGovernor(config.getMaxConcurrentJobs(), threads, connections);
+        log.info("Job scheduler: {} concurrent jobs, {} worker threads, {} connections, {} threads per job, queue {}",
+                config.getMaxConcurrentJobs(), threads, connections, perJobThreads, config.getQueueCapacity());
+
+        this.runners = Executors.newFixedThreadPool(config.getMaxConcurrentJobs(), new CustomizableThreadFactory("job-runner-"));
+        this.dispatcher = new Thread(this::dispatchLoop, "job-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a job. Throws {@link RejectedExecutionException} when the queue is full.
+     */
+    public JobTicket submit(JobParameters parameters, long fileSize) {
+        lock.lock();
+        try {
+            if (pending.size() >= config.getQueueCapacity()) {
+                throw new RejectedExecutionException("Job queue is full (" + pending.size() + " pending)");
+            }
+            JobTicket ticket = new JobTicket(UUID.randomUUID().toString(), sequence.incrementAndGet(), parameters, fileSize);
+            pending.add(ticket);
+            tickets.put(ticket.getId(), ticket);
+            changed.signalAll();
+            log.info("Queued job {} ({} bytes), {} pending, {} running",
+                    ticket.getId(), fileSize, pending.size(), governor.getRunningJobs());
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<JobTicket> find(String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    /**
+     * Number of queued jobs that will be dispatched before this one, or -1 if it is no longer queued.
+     */
+    public int queuePosition(JobTicket ticket) {
+        lock.lock();
+        try {
+            if (!pending.contains(ticket)) return -1;
+            List<JobTicket> order = new ArrayList<>(pending);
+            Instant now = Instant.now();
+            order.sort((a, b) -> compare(a, b, now));
+            return order.indexOf(ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            JobTicket next;
+            ResourceGovernor.Grant grant;
+            lock.lock();
+            try {
+                while (true) {
+                    next = pickNext();
+                    grant = next == null ? null
+                            : governor.tryAcquire(perJobThreads, governor.fairShare(governor.getRunningJobs() + pending.size()));
+                    if (grant != null) break;
+                    changed.await();
+                }
+                pending.remove(next);
+                next.started(grant.getThreads());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            JobTicket ticket = next;
+            ResourceGovernor.Grant granted = grant;
+            log.info("Dispatching job {} with {} threads / {} connections (waited {} ms)",
+                    ticket.getId(), granted.getThreads(), granted.getConnections(),
+                    Duration.between(ticket.getSubmittedAt(), ticket.getStartedAt()).toMillis());
+            try {
+                runners.execute(() -> run(ticket, granted));
+            } catch (RejectedExecutionException e) {
+                release(granted);
+                ticket.failed("Scheduler is shutting down");
+            }
+        }
+    }
+
+    private void run(JobTicket ticket, ResourceGovernor.Grant grant) {
+        try {
+            JobParameters params = new JobParametersBuilder(ticket.getParameters())
+                    // Unique per run even where execution ids are not (embedded job repository)
+                    .addString("runId", ticket.getId(), false)
+                    .addLong("threads", (long) grant.getThreads(), false)
+                    .toJobParameters();
+            JobExecution execution = jobLauncher.run(importPersonJob, params);
+            ticket.finished(execution.getId(), String.valueOf(execution.getStatus()),
+                    execution.getStatus() == BatchStatus.COMPLETED);
+            log.info("Job {} finished with status {} (execution {})", ticket.getId(), execution.getStatus(), execution.getId());
+        } catch (Exception e) {
+            log.error("Job {} failed to run", ticket.getId(), e);
+            ticket.failed(e.getMessage());
+        } finally {
+            release(grant);
+        }
+    }
+
+    private void release(ResourceGovernor.Grant grant) {
+        lock.lock();
+        try {
+            governor.release(grant);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JobTicket pickNext() {
+        JobTicket best = null;
+        Instant now = Instant.now();
+        for (JobTicket candidate : pending) {
+            if (best == null || compare(candidate, best, now) < 0) best = candidate;
+        }
+        return best;
+    }
+
+    private int compare(JobTicket a, JobTicket b, Instant now) {
+        boolean aOverdue = overdue(a, now);
+        boolean bOverdue = overdue(b, now);
+        if (aOverdue != bOverdue) return aOverdue ? -1 : 1;
+        if (!aOverdue) {
+            boolean aSmall = a.getFileSize() <= config.getSmallFileBytes();
+            boolean bSmall = b.getFileSize() <= config.getSmallFileBytes();
+            if (aSmall != bSmall) return aSmall ? -1 : 1;
+        }
+        return Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    private boolean overdue(JobTicket ticket, Instant now) {
+        return Duration.between(ticket.getSubmittedAt(), now).compareTo(config.getMaxWait()) > 0;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("Could not determine connection pool size, assuming 10", e);
+        }
+        return 10;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        dispatcher.interrupt();
+        runners.shutdown();
+    }
+}
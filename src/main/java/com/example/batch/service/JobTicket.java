@@ -0,0 +1,66 @@
+package com.example.batch.service;
+
+import org.springframework.batch.core.JobParameters;
+
+import java.time.Instant;
+
+/**
+ * A submitted import, from admission through queueing to the finished job execution.
+ */
+public class JobTicket {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final long sequence;
+    private final JobParameters parameters;
+    private final long fileSize;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile State state = State.QUEUED;
+    private volatile int threads;
+    private volatile Long executionId;
+    private volatile String batchStatus;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    JobTicket(String id, long sequence, JobParameters parameters, long fileSize) {
+        this.id = id;
+        this.sequence = sequence;
+        this.parameters = parameters;
+        this.fileSize = fileSize;
+    }
+
+    public String getId() { return id; }
+    long getSequence() { return sequence; }
+    JobParameters getParameters() { return parameters; }
+    public long getFileSize() { return fileSize; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public State getState() { return state; }
+    public int getThreads() { return threads; }
+    public Long getExecutionId() { return executionId; }
+    public String getBatchStatus() { return batchStatus; }
+    public String getError() { return error; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+
+    void started(int threads) {
+        this.threads = threads;
+        this.startedAt = Instant.now();
+        this.state = State.RUNNING;
+    }
+
+    void finished(Long executionId, String batchStatus, boolean completed) {
+        this.executionId = executionId;
+        this.batchStatus = batchStatus;
+        this.finishedAt = Instant.now();
+        this.state = completed ? State.COMPLETED : State.FAILED;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = State.FAILED;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.batch.service;
+
+/**
+ * Global thread and connection budget shared by all running jobs.
+ *
+ * A job granted {@code t} worker threads holds {@code t} pooled connections for its
+ * concurrent chunks plus one for the step thread's own JobRepository bookkeeping.
+ * Budgets are plain counters; callers serialize access (see {@link JobScheduler}).
+ */
+public class ResourceGovernor {
+
+    private final int maxJobs;
+    private final int threadBudget;
+    private final int connectionBudget;
+
+    private int runningJobs;
+    private int threadsInUse;
+    private int connectionsInUse;
+
+    public ResourceGovernor(int maxJobs, int threadBudget, int connectionBudget) {
+        if (maxJobs < 1 || threadBudget < 1 || connectionBudget < 2) {
+            throw new IllegalArgumentException("Invalid budgets: jobs=" + maxJobs + ", threads=" + threadBudget
+                    + ", connections=" + connectionBudget);
+        }
+        this.maxJobs = maxJobs;
+        this.threadBudget = threadBudget;
+        this.connectionBudget = connectionBudget;
+    }
+
+    /**
+     * Grants up to {@code wanted} threads, capped by {@code fairShare} and by what is left of
+     * both budgets. Returns null when no job slot or not even one thread/connection pair is free.
+     */
+    public Grant tryAcquire(int wanted, int fairShare) {
+        if (runningJobs >= maxJobs) return null;
+        int threads = Math.min(wanted, fairShare);
+        threads = Math.min(threads, threadBudget - threadsInUse);
+        threads = Math.min(threads, connectionBudget - connectionsInUse - 1);
+        if (threads < 1) return null;
+        Grant grant = new Grant(threads, threads + 1);
+        runningJobs++;
+        threadsInUse += grant.threads;
+        connectionsInUse += grant.connections;
+        return grant;
+    }
+
+    public void release(Grant grant) {
+        runningJobs--;
+        threadsInUse -= grant.threads;
+        connectionsInUse -= grant.connections;
+    }
+
+    /**
+     * Even split of the thread budget between the jobs that want to run right now.
+     */
+    public int fairShare(int contenders) {
+        int sharing = Math.max(1, Math.min(maxJobs, contenders));
+        return Math.max(1, threadBudget / sharing);
+    }
+
+    public int getRunningJobs() { return runningJobs; }
+    public int getThreadsInUse() { return threadsInUse; }
+    public int getConnectionsInUse() { return connectionsInUse; }
+    public int getMaxJobs() { return maxJobs; }
+    public int getThreadBudget() { return threadBudget; }
+    public int getConnectionBudget() { return connectionBudget; }
+
+    public static final class Grant {
+        private final int threads;
+        private final int connections;
+
+        private Grant(int threads, int connections) {
+            this.threads = threads;
+            this.connections = connections;
+        }
+
+        public int getThreads() { return threads; }
+        public int getConnections() { return connections; }
+    }
+}
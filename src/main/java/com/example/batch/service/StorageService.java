@@ -1,6 +1,8 @@
 package com.example.batch.service;
 
 import com.example.batch.config.FileUploadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -14,6 +16,8 @@ import java.time.format.DateTimeFormatter;
 
 @Service
 public class StorageService {
+    private static final Logger log = LoggerFactory.getLogger(StorageService.class);
+
     private final Path uploadDir;
 
     public StorageService(FileUploadProperties properties) {
@@ -34,6 +38,18 @@ public class StorageService {
         return target;
     }
 
+    /**
+     * Removes a saved upload that will not be processed; null is ignored.
+     */
+    public void delete(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete upload {}", file, e);
+        }
+    }
+
     private static String resolveHome(String path) {
         if (path == null) return System.getProperty("user.home") + "/uploads";
         String userHome = System.getProperty("user.home");
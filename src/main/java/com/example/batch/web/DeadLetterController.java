@@ -0,0 +1,64 @@
+package com.example.batch.web;
+
+import com.example.batch.model.DeadLetterRecord;
+import com.example.batch.repository.DeadLetterRepository;
+import com.example.batch.service.DeadLetterReplayService;
+import com.example.batch.service.DeadLetterStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dead-letters")
+public class DeadLetterController {
+
+    private final DeadLetterRepository repository;
+    private final DeadLetterStore store;
+    private final DeadLetterReplayService replayService;
+
+    public DeadLetterController(DeadLetterRepository repository,
+                                DeadLetterStore store,
+                                DeadLetterReplayService replayService) {
+        this.repository = repository;
+        this.store = store;
+        this.replayService = replayService;
+    }
+
+    @GetMapping
+    public List<DeadLetterRecord> list(@RequestParam(defaultValue = DeadLetterRecord.PENDING) String status,
+                                       @RequestParam(required = false) String runId,
+                                       @RequestParam(required = false) Long jobExecutionId,
+                                       @RequestParam(required = false) String sourceFile,
+                                       @RequestParam(defaultValue = "100") int limit) {
+        store.flush();
+        return repository.find(status, runId, jobExecutionId, sourceFile, null, limit);
+    }
+
+    /**
+     * Replays PENDING records matching the filters through personProcessor and VersioningPersonItemWriter.
+     * {@code runId} is the ticket id returned by the upload; prefer it to {@code jobExecutionId},
+     * which restarts at 1 with an embedded job repository.
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<?> replay(@RequestParam(required = false) String runId,
+                                    @RequestParam(required = false) Long jobExecutionId,
+                                    @RequestParam(required = false) String sourceFile,
+                                    @RequestParam(required = false) List<Long> ids,
+                                    @RequestParam(defaultValue = "10000") int limit) {
+        try {
+            store.flush();
+            DeadLetterReplayService.ReplayResult result = replayService.replay(runId, jobExecutionId, sourceFile, ids, limit);
+            return ResponseEntity.ok(Map.of(
+                    "replayed", result.getReplayed(),
+                    "filtered", result.getFiltered(),
+                    "failed", result.getFailed()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -2,12 +2,11 @@ package com.example.batch.web;
 
 import com.example.batch.config.BatchProperties;
 import com.example.batch.config.FileOutputProperties;
+import com.example.batch.service.JobScheduler;
+import com.example.batch.service.JobTicket;
 import com.example.batch.service.StorageService;
-import org.springframework.batch.core.Job;
-import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
@@ -20,26 +19,25 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
 public class UploadController {
 
     private final StorageService storageService;
-    private final JobLauncher jobLauncher;
-    private final Job importPersonJob;
+    private final JobScheduler jobScheduler;
     private final FileOutputProperties outputProperties;
     private final BatchProperties batchProperties;
 
     public UploadController(StorageService storageService,
-                            JobLauncher jobLauncher,
-                            Job importPersonJob,
+                            JobScheduler jobScheduler,
                             FileOutputProperties outputProperties,
                             BatchProperties batchProperties) {
         this.storageService = storageService;
-        this.jobLauncher = jobLauncher;
-        this.importPersonJob = importPersonJob;
+        this.jobScheduler = jobScheduler;
         this.outputProperties = outputProperties;
         this.batchProperties = batchProperties;
     }
@@ -49,8 +47,9 @@ public class UploadController {
         if (file == null || file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "CSV file is required"));
         }
+        Path saved = null;
         try {
-            Path saved = storageService.save(file.getOriginalFilename(), file.getBytes());
+            saved = storageService.save(file.getOriginalFilename(), file.getBytes());
 
             // Prepare output CSV path for matches
             String outDirConfig = outputProperties.getDir();
@@ -66,24 +65,51 @@ public class UploadController {
                     .addLong("ts", Instant.now().toEpochMilli())
                     .toJobParameters();
 
-            JobExecution execution = jobLauncher.run(importPersonJob, params);
+            JobTicket ticket = jobScheduler.submit(params, file.getSize());
 
             return ResponseEntity.accepted().body(Map.of(
-                    "message", "Upload successful. Job started.",
-                    "jobId", execution.getJobId(),
-                    "executionId", execution.getId(),
-                    "status", String.valueOf(execution.getStatus()),
+                    "message", "Upload successful. Job queued.",
+                    "ticketId", ticket.getId(),
+                    "state", String.valueOf(ticket.getState()),
+                    "queuePosition", jobScheduler.queuePosition(ticket),
                     "file", saved.toString(),
                     "outFile", outFile,
                     "restUrl", batchProperties.getRest().getBaseUrl(),
                     "pageSize", batchProperties.getRest().getPageSize()
             ));
+        } catch (RejectedExecutionException e) {
+            // Not queued, so no job will ever read or clean up the upload
+            storageService.delete(saved);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
+            storageService.delete(saved);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
         }
     }
 
+    @GetMapping("/jobs/{ticketId}")
+    public ResponseEntity<?> jobStatus(@PathVariable String ticketId) {
+        return jobScheduler.find(ticketId)
+                .<ResponseEntity<?>>map(ticket -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("ticketId", ticket.getId());
+                    body.put("state", String.valueOf(ticket.getState()));
+                    body.put("queuePosition", jobScheduler.queuePosition(ticket));
+                    body.put("threads", ticket.getThreads());
+                    body.put("executionId", ticket.getExecutionId());
+                    body.put("status", ticket.getBatchStatus());
+                    body.put("error", ticket.getError());
+                    body.put("submittedAt", String.valueOf(ticket.getSubmittedAt()));
+                    body.put("startedAt", ticket.getStartedAt() == null ? null : String.valueOf(ticket.getStartedAt()));
+                    body.put("finishedAt", ticket.getFinishedAt() == null ? null : String.valueOf(ticket.getFinishedAt()));
+                    return ResponseEntity.ok(body);
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Unknown ticket: " + ticketId)));
+    }
+
     private static String resolveHome(String path) {
         if (path == null) return System.getProperty("user.home") + "/uploads";
         String userHome = System.getProperty("user.home");
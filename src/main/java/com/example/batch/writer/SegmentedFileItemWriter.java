@@ -0,0 +1,307 @@
+package com.example.batch.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe flat file writer for multi-threaded steps.
+ *
+ * Every concurrent chunk borrows its own segment file (outFile.segments/part-N),
+ * appends its lines through a private buffer, so writers never contend on a shared stream.
+ * A segment stays with its chunk until the chunk transaction completes: on commit its size
+ * becomes the committed size, on rollback the segment is truncated back to the last committed
+ * size before it is handed to another chunk. The execution context only ever records committed
+ * sizes (plus the chunk committing in the current transaction), so on restart the segments are
+ * truncated back to those sizes and appended to again.
+ * When the step completes, the header and all segments are concatenated into the
+ * final file with FileChannel.transferTo and the segment directory is removed; a failed
+ * merge marks the step FAILED and keeps the segments.
+ */
+public class SegmentedFileItemWriter<T> implements ItemStreamWriter<T>, StepExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedFileItemWriter.class);
+
+    private static final String SEGMENT_PREFIX = "part-";
+
+    private final String name;
+    private final Path outFile;
+    private final Path segmentDir;
+    private final LineAggregator<T> lineAggregator;
+    private final String header;
+
+    private final ConcurrentLinkedQueue<Segment> idle = new ConcurrentLinkedQueue<>();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextSegment = new AtomicInteger();
+    // Segment written by the chunk transaction running on this thread, until that transaction completes
+    private final ThreadLocal<Segment> inFlight = new ThreadLocal<>();
+
+    public SegmentedFileItemWriter(String name, Path outFile, LineAggregator<T> lineAggregator, String header) {
+        Assert.hasText(name, "name must not be empty");
+        Assert.notNull(outFile, "outFile must not be null");
+        Assert.notNull(lineAggregator, "lineAggregator must not be null");
+        this.name = name;
+        this.outFile = outFile.toAbsolutePath();
+        this.segmentDir = this.outFile.resolveSibling(this.outFile.getFileName() + ".segments");
+        this.lineAggregator = lineAggregator;
+        this.header = header;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        try {
+            Files.createDirectories(segmentDir);
+            if (executionContext.containsKey(key("segments"))) {
+                // Restart: keep what previous chunks committed, drop anything written after the last commit
+                int count = executionContext.getInt(key("segments"));
+                for (int i = 0; i < count; i++) {
+                    long committed = executionContext.getLong(key("segment." + i + ".size"), 0L);
+                    Segment segment = openSegment(i, committed);
+                    segments.add(segment);
+                    idle.add(segment);
+                }
+                nextSegment.set(count);
+                deleteSegmentsFrom(count);
+                log.info("Resuming {} with {} existing segments in {}", name, count, segmentDir);
+            } else {
+                deleteSegmentsFrom(0);
+                log.info("Opened {} writing segments to {}", name, segmentDir);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open segment directory: " + segmentDir, e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        Segment own = inFlight.get();
+        Segment segment = own != null ? own : borrow();
+        try {
+            for (T item : chunk) {
+                segment.writer.write(lineAggregator.aggregate(item));
+                segment.writer.newLine();
+            }
+            // One flush per chunk keeps committed chunks on disk without a syscall per line
+            segment.writer.flush();
+            segment.pendingSize = segment.channel.position();
+        } catch (Exception e) {
+            if (own == null) {
+                // Never hand a half-written segment to the next chunk
+                try {
+                    segment.rollback();
+                } catch (IOException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                idle.add(segment);
+            }
+            // else: the transaction this segment is bound to rolls back and resets it
+            throw e;
+        }
+        if (own != null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            segment.commit();
+            idle.add(segment);
+            return;
+        }
+        inFlight.set(segment);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove();
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        segment.commit();
+                    } else {
+                        segment.rollback();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to reset segment " + segment.path, e);
+                } finally {
+                    idle.add(segment);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Called inside the chunk transaction: this thread's chunk commits together with the context
+        Segment own = inFlight.get();
+        executionContext.putInt(key("segments"), segments.size());
+        for (Segment segment : segments) {
+            long size = segment == own ? segment.pendingSize : segment.committedSize;
+            executionContext.putLong(key("segment." + segment.index + ".size"), size);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        idle.clear();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            log.info("{} keeps its segments in {} for restart (status {})",
+                    name, segmentDir, stepExecution.getStatus());
+            return null;
+        }
+        try {
+            long bytes = merge();
+            log.info("{} merged {} segments ({} bytes) into {}", name, segments.size(), bytes, outFile);
+        } catch (IOException e) {
+            // AbstractStep only logs exceptions thrown from afterStep; report the failure on the step instead
+            log.error("{} failed to merge segments into {}; segments kept in {}", name, outFile, segmentDir, e);
+            stepExecution.addFailureException(new UncheckedIOException("Failed to merge segments into " + outFile, e));
+            stepExecution.setStatus(BatchStatus.FAILED);
+            return ExitStatus.FAILED.addExitDescription(e);
+        }
+        return null;
+    }
+
+    private long merge() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        try (FileChannel target = FileChannel.open(outFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (header != null) {
+                BufferedWriter headerWriter = new BufferedWriter(Channels.newWriter(target, StandardCharsets.UTF_8));
+                headerWriter.write(header);
+                headerWriter.newLine();
+                headerWriter.flush();
+            }
+            for (Segment segment : segments) {
+                try (FileChannel source = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = source.size();
+                    // transferTo may move fewer bytes than asked, so loop until the segment is drained
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+            target.force(false);
+        }
+        for (Segment segment : segments) {
+            Files.deleteIfExists(segment.path);
+        }
+        Files.deleteIfExists(segmentDir);
+        return Files.size(outFile);
+    }
+
+    private Segment borrow() throws IOException {
+        Segment segment = idle.poll();
+        if (segment != null) {
+            return segment;
+        }
+        segment = openSegment(nextSegment.getAndIncrement(), 0L);
+        segments.add(segment);
+        return segment;
+    }
+
+    private Segment openSegment(int index, long committedSize) throws IOException {
+        Path path = segmentDir.resolve(SEGMENT_PREFIX + index);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(committedSize);
+        channel.position(committedSize);
+        return new Segment(index, path, channel, committedSize);
+    }
+
+    private void deleteSegmentsFrom(int firstStale) throws IOException {
+        try (Stream<Path> files = Files.list(segmentDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.startsWith(SEGMENT_PREFIX)) continue;
+                try {
+                    if (Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length())) < firstStale) continue;
+                } catch (NumberFormatException ignored) {
+                    // not one of ours, fall through and remove it
+                }
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private String key(String suffix) {
+        return name + "." + suffix;
+    }
+
+    private static final class Segment {
+        private final int index;
+        private final Path path;
+        private final FileChannel channel;
+        private BufferedWriter writer;
+        // Bytes of chunks whose transaction committed
+        private volatile long committedSize;
+        // Bytes including the chunk currently bound to this segment
+        private volatile long pendingSize;
+
+        private Segment(int index, Path path, FileChannel channel, long committedSize) {
+            this.index = index;
+            this.path = path;
+            this.channel = channel;
+            this.writer = newWriter(channel);
+            this.committedSize = committedSize;
+            this.pendingSize = committedSize;
+        }
+
+        private void commit() {
+            committedSize = pendingSize;
+        }
+
+        /** Drops everything written since the last commit, including lines still in the buffer. */
+        private void rollback() throws IOException {
+            channel.truncate(committedSize);
+            channel.position(committedSize);
+            writer = newWriter(channel);
+            pendingSize = committedSize;
+        }
+
+        private static BufferedWriter newWriter(FileChannel channel) {
+            return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        private void close() {
+            try {
+                if (channel.isOpen()) {
+                    writer.flush();
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to close segment {}", path, e);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.batch.writer;
 
 import com.example.batch.model.Person;
 import com.example.batch.repository.PersonRepository;
+import com.example.batch.repository.PersonRepository.CurrentPerson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.Chunk;
@@ -10,6 +11,13 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Component
 public class VersioningPersonItemWriter implements ItemWriter<Person> {
     private static final Logger log = LoggerFactory.getLogger(VersioningPersonItemWriter.class);
@@ -23,37 +31,92 @@ public class VersioningPersonItemWriter implements ItemWriter<Person> {
     @Override
     @Transactional
     public void write(Chunk<? extends Person> chunk) throws Exception {
+        // Resolve the whole chunk against the current table first, then apply it in three batches:
+        // superseded versions -> history, changed persons -> in-place update, new persons -> insert.
+        Map<String, CurrentPerson> latest = new LinkedHashMap<>();
+        Set<String> existing = new HashSet<>();
+        Set<String> changed = new HashSet<>();
+        List<CurrentPerson> superseded = new ArrayList<>();
+
         for (Person p : chunk) {
-            upsertVersioned(p);
+            try {
+                upsertVersioned(p, latest, existing, changed, superseded);
+            } catch (DataAccessException e) {
+                log.error("Failed to upsert person with email {}", p.getEmail(), e);
+                throw e;
+            }
         }
-    }
 
-    private void upsertVersioned(Person p) {
-        try {
-            var currentOpt = personRepository.findCurrentByEmail(p.getEmail());
-            if (currentOpt.isEmpty()) {
-                personRepository.insert(p, 1);
-                return;
-            }
-            var current = currentOpt.get();
-            boolean same = equalsNullable(current.getFirstName(), p.getFirstName())
-                    && equalsNullable(current.getLastName(), p.getLastName())
-                    && equalsNullable(current.getEmail(), p.getEmail())
-                    && equalsNullable(current.getAge(), p.getAge());
-            if (same) {
-                // No change; keep current version
-                return;
+        List<CurrentPerson> inserts = new ArrayList<>();
+        List<CurrentPerson> updates = new ArrayList<>();
+        for (CurrentPerson cp : latest.values()) {
+            if (!changed.contains(cp.getEmail())) continue;
+            if (existing.contains(cp.getEmail())) {
+                updates.add(cp);
+            } else {
+                inserts.add(cp);
             }
-            // Update: mark old not current and insert new version+1
-            personRepository.markAllNotCurrent(p.getEmail());
-            int nextVersion = (current.getVersion() == null ? 1 : current.getVersion()) + 1;
-            personRepository.insert(p, nextVersion);
+        }
+        try {
+            personRepository.archiveVersions(superseded);
+            personRepository.updateCurrent(updates);
+            personRepository.insertCurrent(inserts);
         } catch (DataAccessException e) {
-            log.error("Failed to upsert person with email {}", p.getEmail(), e);
+            log.error("Failed to write chunk of {} persons ({} new, {} changed, {} archived)",
+                    chunk.size(), inserts.size(), updates.size(), superseded.size(), e);
             throw e;
         }
     }
 
+    private void upsertVersioned(Person p,
+                                 Map<String, CurrentPerson> latest,
+                                 Set<String> existing,
+                                 Set<String> changed,
+                                 List<CurrentPerson> superseded) {
+        // The same email may appear more than once in a chunk; later items build on earlier ones
+        CurrentPerson current = latest.get(p.getEmail());
+        if (current == null) {
+            var currentOpt = personRepository.findCurrentByEmail(p.getEmail());
+            if (currentOpt.isPresent()) {
+                current = currentOpt.get();
+                existing.add(p.getEmail());
+                latest.put(p.getEmail(), current);
+            }
+        }
+        if (current == null) {
+            latest.put(p.getEmail(), nextVersion(p, 1));
+            changed.add(p.getEmail());
+            return;
+        }
+        boolean same = equalsNullable(current.getFirstName(), p.getFirstName())
+                && equalsNullable(current.getLastName(), p.getLastName())
+                && equalsNullable(current.getEmail(), p.getEmail())
+                && equalsNullable(current.getAge(), p.getAge());
+        if (same) {
+            // No change; keep current version
+            return;
+        }
+        // Update: old version goes to history, new version+1 replaces it in the current table
+        superseded.add(current);
+        int nextVersion = (current.getVersion() == null ? 1 : current.getVersion()) + 1;
+        CurrentPerson next = nextVersion(p, nextVersion);
+        next.setId(current.getId());
+        // The UPDATE is conditional on the version read from the database, not on intermediate in-chunk versions
+        next.setBaseVersion(current.getBaseVersion() != null ? current.getBaseVersion() : current.getVersion());
+        latest.put(p.getEmail(), next);
+        changed.add(p.getEmail());
+    }
+
+    private static CurrentPerson nextVersion(Person p, int version) {
+        CurrentPerson cp = new CurrentPerson();
+        cp.setFirstName(p.getFirstName());
+        cp.setLastName(p.getLastName());
+        cp.setEmail(p.getEmail());
+        cp.setAge(p.getAge());
+        cp.setVersion(version);
+        return cp;
+    }
+
     private static boolean equalsNullable(Object a, Object b) {
         if (a == null) return b == null;
         return a.equals(b);
@@ -1,3 +1,4 @@
+-- Current table: one row per email holding its latest version
 -- Create table if it does not exist (single-statement IF for Spring ScriptUtils)
 IF OBJECT_ID(N'[dbo].[persons]', N'U') IS NULL
     CREATE TABLE [dbo].[persons] (
@@ -7,15 +8,12 @@ IF OBJECT_ID(N'[dbo].[persons]', N'U') IS NULL
         [email]      NVARCHAR(320) NOT NULL,
         [age]        INT NULL,
         [version]    INT NOT NULL DEFAULT(1),
-        [is_current] BIT NOT NULL DEFAULT(1),
         [updated_at] DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
     );
 
 -- Add columns if table already exists (idempotent)
 IF COL_LENGTH('dbo.persons', 'version') IS NULL
     ALTER TABLE dbo.persons ADD [version] INT NOT NULL DEFAULT(1);
-IF COL_LENGTH('dbo.persons', 'is_current') IS NULL
-    ALTER TABLE dbo.persons ADD [is_current] BIT NOT NULL DEFAULT(1);
 IF COL_LENGTH('dbo.persons', 'updated_at') IS NULL
     ALTER TABLE dbo.persons ADD [updated_at] DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME();
 
@@ -23,6 +21,114 @@ IF COL_LENGTH('dbo.persons', 'updated_at') IS NULL
 IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_persons_email' AND object_id = OBJECT_ID(N'[dbo].[persons]'))
     DROP INDEX [IX_persons_email] ON [dbo].[persons];
 
--- Create filtered unique index on current version
-IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'UX_persons_email_current' AND object_id = OBJECT_ID(N'[dbo].[persons]'))
-    CREATE UNIQUE INDEX [UX_persons_email_current] ON [dbo].[persons]([email]) WHERE [is_current] = 1;
+-- History table for superseded versions; dbo.persons only keeps the current row per email
+IF OBJECT_ID(N'[dbo].[persons_history]', N'U') IS NULL
+    CREATE TABLE [dbo].[persons_history] (
+        [history_id]    BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        [person_id]     INT NULL,
+        [first_name]    NVARCHAR(100) NULL,
+        [last_name]     NVARCHAR(100) NULL,
+        [email]         NVARCHAR(320) NOT NULL,
+        [age]           INT NULL,
+        [version]       INT NOT NULL,
+        [valid_from]    DATETIME2 NOT NULL,
+        [superseded_at] DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+    );
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_persons_history_email_version' AND object_id = OBJECT_ID(N'[dbo].[persons_history]'))
+    CREATE INDEX [IX_persons_history_email_version] ON [dbo].[persons_history]([email], [version]);
+
+-- Every row in dbo.persons is current, so the email index no longer needs the is_current filter
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'UX_persons_email_current' AND object_id = OBJECT_ID(N'[dbo].[persons]'))
+    DROP INDEX [UX_persons_email_current] ON [dbo].[persons];
+
+-- One-time migration from the old in-table layout: superseded versions (is_current = 0) move to history
+-- in a single DELETE ... OUTPUT, then is_current is dropped in the same transaction. The column check
+-- makes this a no-op on every later boot; a crash before COMMIT leaves both tables untouched.
+IF COL_LENGTH('dbo.persons', 'is_current') IS NOT NULL
+    EXEC(N'
+        SET XACT_ABORT ON;
+        BEGIN TRANSACTION;
+        DELETE FROM dbo.persons
+            OUTPUT deleted.id, deleted.first_name, deleted.last_name, deleted.email, deleted.age, deleted.version, deleted.updated_at
+            INTO dbo.persons_history (person_id, first_name, last_name, email, age, version, valid_from)
+            WHERE is_current = 0;
+        DECLARE @default_constraint SYSNAME = (SELECT d.name FROM sys.default_constraints d
+            JOIN sys.columns c ON c.object_id = d.parent_object_id AND c.column_id = d.parent_column_id
+            WHERE d.parent_object_id = OBJECT_ID(N''dbo.persons'') AND c.name = N''is_current'');
+        IF @default_constraint IS NOT NULL
+            EXEC(N''ALTER TABLE dbo.persons DROP CONSTRAINT '' + QUOTENAME(@default_constraint));
+        ALTER TABLE dbo.persons DROP COLUMN is_current;
+        COMMIT TRANSACTION;
+    ');
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'UX_persons_email' AND object_id = OBJECT_ID(N'[dbo].[persons]'))
+    CREATE UNIQUE INDEX [UX_persons_email] ON [dbo].[persons]([email]) INCLUDE ([first_name], [last_name], [age], [version]);
+
+-- Code-point ordered copy of email for the reconciliation merge join (ORDER BY email_bin).
+-- The column collation of email cannot serve ORDER BY ... COLLATE Latin1_General_BIN2 from an index.
+IF COL_LENGTH('dbo.persons', 'email_bin') IS NULL
+    ALTER TABLE dbo.persons ADD [email_bin] AS ([email] COLLATE Latin1_General_BIN2) PERSISTED;
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_persons_email_bin' AND object_id = OBJECT_ID(N'[dbo].[persons]'))
+    CREATE INDEX [IX_persons_email_bin] ON [dbo].[persons]([email_bin]) INCLUDE ([first_name], [last_name], [email], [age], [version], [updated_at]);
+
+-- Dead-letter store for skipped records, replayable via /api/dead-letters/replay
+IF OBJECT_ID(N'[dbo].[dead_letter_records]', N'U') IS NULL
+    CREATE TABLE [dbo].[dead_letter_records] (
+        [id]               BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        [job_execution_id] BIGINT NULL,
+        [run_id]           NVARCHAR(36) NULL,
+        [step_name]        NVARCHAR(100) NULL,
+        [phase]            NVARCHAR(10) NOT NULL,
+        [reason]           NVARCHAR(1000) NULL,
+        [source_file]      NVARCHAR(1000) NULL,
+        [line_number]      INT NULL,
+        [raw_line]         NVARCHAR(MAX) NULL,
+        [first_name]       NVARCHAR(100) NULL,
+        [last_name]        NVARCHAR(100) NULL,
+        [email]            NVARCHAR(320) NULL,
+        [age]              INT NULL,
+        [status]           NVARCHAR(10) NOT NULL DEFAULT 'PENDING',
+        [created_at]       DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(),
+        [replayed_at]      DATETIME2 NULL
+    );
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_dead_letter_records_status' AND object_id = OBJECT_ID(N'[dbo].[dead_letter_records]'))
+    CREATE INDEX [IX_dead_letter_records_status] ON [dbo].[dead_letter_records]([status], [job_execution_id]);
+
+-- Execution ids restart with an embedded job repository; run_id (the upload ticket id) does not
+IF COL_LENGTH('dbo.dead_letter_records', 'run_id') IS NULL
+    ALTER TABLE dbo.dead_letter_records ADD [run_id] NVARCHAR(36) NULL;
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_dead_letter_records_run_id' AND object_id = OBJECT_ID(N'[dbo].[dead_letter_records]'))
+    CREATE INDEX [IX_dead_letter_records_run_id] ON [dbo].[dead_letter_records]([run_id], [status]);
+
+-- One row per finished job run; the only durable run record when batch.job-repository.mode=embedded
+IF OBJECT_ID(N'[dbo].[job_run_summary]', N'U') IS NULL
+    CREATE TABLE [dbo].[job_run_summary] (
+        [id]               BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        [job_execution_id] BIGINT NOT NULL,
+        [run_id]           NVARCHAR(36) NULL,
+        [job_instance_id]  BIGINT NOT NULL,
+        [job_name]         NVARCHAR(100) NOT NULL,
+        [repository_mode]  NVARCHAR(10) NOT NULL,
+        [status]           NVARCHAR(10) NOT NULL,
+        [exit_code]        NVARCHAR(2500) NULL,
+        [exit_description] NVARCHAR(2500) NULL,
+        [job_parameters]   NVARCHAR(2500) NULL,
+        [start_time]       DATETIME2 NULL,
+        [end_time]         DATETIME2 NOT NULL,
+        [duration_ms]      BIGINT NULL,
+        [read_count]       BIGINT NOT NULL,
+        [write_count]      BIGINT NOT NULL,
+        [filter_count]     BIGINT NOT NULL,
+        [skip_count]       BIGINT NOT NULL,
+        [commit_count]     BIGINT NOT NULL,
+        [rollback_count]   BIGINT NOT NULL,
+        [step_summary]     NVARCHAR(MAX) NULL,
+        [created_at]       DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+    );
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = N'IX_job_run_summary_end_time' AND object_id = OBJECT_ID(N'[dbo].[job_run_summary]'))
+    CREATE INDEX [IX_job_run_summary_end_time] ON [dbo].[job_run_summary]([end_time]);
+
+IF COL_LENGTH('dbo.job_run_summary', 'run_id') IS NULL
+    ALTER TABLE dbo.job_run_summary ADD [run_id] NVARCHAR(36) NULL;
@@ -0,0 +1,86 @@
+package com.example.batch.profiling;
+
+import com.example.batch.model.Person;
+import com.example.batch.repository.PersonRepository;
+import com.example.batch.writer.VersioningPersonItemWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round-trip budget for {@link VersioningPersonItemWriter}: at most one lookup per item, and at
+ * most one JDBC batch each for the archive, update and insert of a whole chunk.
+ * Runs against H2 in MSSQLServer mode with just the columns the writer touches.
+ */
+class VersioningPersonItemWriterRoundTripTest {
+
+    private JdbcStatementProfiler profiler;
+    private JdbcTemplate jdbcTemplate;
+    private VersioningPersonItemWriter writer;
+
+    /** Stand-in for SQL Server's SYSUTCDATETIME(), registered as an H2 alias. */
+    public static LocalDateTime utcNow() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource target = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1;BUILTIN_ALIAS_OVERRIDE=TRUE", "sa", "");
+        profiler = new JdbcStatementProfiler();
+        jdbcTemplate = new JdbcTemplate(new ProfilingDataSource(target, profiler));
+
+        jdbcTemplate.execute("CREATE ALIAS SYSUTCDATETIME FOR '" + getClass().getName() + ".utcNow'");
+        jdbcTemplate.execute("CREATE SCHEMA dbo");
+        jdbcTemplate.execute("CREATE TABLE dbo.persons (id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "first_name VARCHAR(100), last_name VARCHAR(100), email VARCHAR(320) NOT NULL UNIQUE, age INT, "
+                + "version INT NOT NULL DEFAULT 1, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE dbo.persons_history (history_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "person_id INT, first_name VARCHAR(100), last_name VARCHAR(100), email VARCHAR(320) NOT NULL, age INT, "
+                + "version INT NOT NULL, valid_from TIMESTAMP NOT NULL, superseded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO dbo.persons(first_name, last_name, email, age, version, updated_at) "
+                + "VALUES('Ann', 'Adams', 'ann@example.com', 30, 1, SYSUTCDATETIME())");
+        jdbcTemplate.update("INSERT INTO dbo.persons(first_name, last_name, email, age, version, updated_at) "
+                + "VALUES('Bob', 'Brown', 'bob@example.com', 40, 1, SYSUTCDATETIME())");
+
+        writer = new VersioningPersonItemWriter(new PersonRepository(jdbcTemplate));
+    }
+
+    @Test
+    void writesChunkWithinRoundTripBudget() throws Exception {
+        Chunk<Person> chunk = Chunk.of(
+                person("Ann", "Adams", "ann@example.com", 31),   // changed: archive + update
+                person("Bob", "Brown", "bob@example.com", 40),   // unchanged
+                person("Cid", "Clark", "cid@example.com", 25),   // new
+                person("Dee", "Davis", "dee@example.com", 52));  // new
+
+        try (JdbcStatementProfiler.Scope scope = profiler.openScope("writer")) {
+            writer.write(chunk);
+            scope.setItems(chunk.size());
+
+            // Budget, not an exact script: the lookup may run once per item, every write at most once per chunk
+            assertThat(scope.statementCount()).isLessThanOrEqualTo(chunk.size() + 3);
+            assertThat(scope.perItemStatements()).hasSizeLessThanOrEqualTo(1);
+            assertThat(scope.statementCount("INSERT INTO dbo.persons_history")).isLessThanOrEqualTo(1);
+            assertThat(scope.statementCount("UPDATE dbo.persons")).isLessThanOrEqualTo(1);
+            assertThat(scope.statementCount("INSERT INTO dbo.persons(")).isLessThanOrEqualTo(1);
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dbo.persons", Integer.class)).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM dbo.persons WHERE email = 'ann@example.com'", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dbo.persons_history WHERE email = 'ann@example.com' AND version = 1",
+                Integer.class)).isEqualTo(1);
+    }
+
+    private static Person person(String firstName, String lastName, String email, int age) {
+        return Person.builder().firstName(firstName).lastName(lastName).email(email).age(age).build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.batch.reconcile;
+
+import com.example.batch.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalPersonSorterTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void sortsInMemoryWhenInputFitsTheBuffer() throws IOException {
+        try (ExternalPersonSorter sorter = new ExternalPersonSorter(10, spillDir)) {
+            List<String> sorted = emails(sorter.sort(persons("c@x", "a@x", "b@x", "a@x")));
+
+            assertThat(sorted).containsExactly("a@x", "a@x", "b@x", "c@x");
+            assertThat(sorter.arrivedSorted()).isFalse();
+            assertThat(runFiles()).isZero();
+        }
+    }
+
+    @Test
+    void spillsUnsortedInputAndMergesSeveralRuns() throws IOException {
+        List<String> input = List.of("j@x", "c@x", "h@x", "a@x", "e@x", "c@x", "i@x", "b@x", "g@x", "d@x", "f@x", "a@x");
+        try (ExternalPersonSorter sorter = new ExternalPersonSorter(3, spillDir)) {
+            Iterator<Person> result = sorter.sort(persons(input.toArray(String[]::new)));
+
+            assertThat(runFiles()).isEqualTo(4);
+            assertThat(emails(result)).containsExactlyElementsOf(input.stream().sorted().toList());
+            assertThat(sorter.size()).isEqualTo(input.size());
+            assertThat(sorter.arrivedSorted()).isFalse();
+        }
+        assertThat(runFiles()).isZero();
+    }
+
+    @Test
+    void writesSortedInputBeyondTheBufferToOneRun() throws IOException {
+        try (ExternalPersonSorter sorter = new ExternalPersonSorter(3, spillDir)) {
+            Iterator<Person> result = sorter.sort(persons("a@x", "b@x", "b@x", "c@x", "d@x", "d@x", "e@x", "f@x"));
+
+            assertThat(runFiles()).isEqualTo(1);
+            assertThat(emails(result)).containsExactly("a@x", "b@x", "b@x", "c@x", "d@x", "d@x", "e@x", "f@x");
+            assertThat(sorter.arrivedSorted()).isTrue();
+        }
+    }
+
+    @Test
+    void fallsBackToSortedRunsWhenTheOrderBreaksAfterTheBuffer() throws IOException {
+        try (ExternalPersonSorter sorter = new ExternalPersonSorter(3, spillDir)) {
+            Iterator<Person> result = sorter.sort(persons("b@x", "d@x", "f@x", "h@x", "j@x", "a@x", "i@x", "c@x", "d@x", "k@x"));
+
+            // the ordered prefix as one run, then the rest in runs of three
+            assertThat(runFiles()).isEqualTo(3);
+            assertThat(emails(result)).containsExactly("a@x", "b@x", "c@x", "d@x", "d@x", "f@x", "h@x", "i@x", "j@x", "k@x");
+            assertThat(sorter.arrivedSorted()).isFalse();
+        }
+    }
+
+    @Test
+    void keepsAllFieldsThroughASpill() throws IOException {
+        Person full = Person.builder().firstName("Ann").lastName("Adams").email("b@x").age(31).build();
+        Person sparse = Person.builder().email("a@x").build();
+        try (ExternalPersonSorter sorter = new ExternalPersonSorter(1, spillDir)) {
+            List<Person> sorted = new ArrayList<>();
+            sorter.sort(List.of(full, sparse).iterator()).forEachRemaining(sorted::add);
+
+            assertThat(sorted).containsExactly(sparse, full);
+        }
+    }
+
+    @Test
+    void ordersEmailsByUtf16CodeUnitLikeBin2() {
+        // '-' < '.' < '@' < '_' < letters; a surrogate pair (U+1F600) sorts before U+FF21 as in Latin1_General_BIN2
+        List<String> emails = new ArrayList<>(List.of("a_b@x", "\uFF21@x", "a@x", "a.b@x", "\uD83D\uDE00@x", "a-b@x"));
+        emails.sort(ExternalPersonSorter.EMAIL_ORDER);
+
+        assertThat(emails).containsExactly("a-b@x", "a.b@x", "a@x", "a_b@x", "\uD83D\uDE00@x", "\uFF21@x");
+    }
+
+    private long runFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+
+    private static Iterator<Person> persons(String... emails) {
+        return Arrays.stream(emails).map(e -> Person.builder().email(e).build()).iterator();
+    }
+
+    private static List<String> emails(Iterator<Person> persons) {
+        List<String> emails = new ArrayList<>();
+        persons.forEachRemaining(p -> emails.add(p.getEmail()));
+        return emails;
+    }
+}
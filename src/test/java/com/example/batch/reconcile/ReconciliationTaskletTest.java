@@ -0,0 +1,87 @@
+package com.example.batch.reconcile;
+
+import com.example.batch.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ReconciliationTasklet#mergeJoin} on already sorted inputs.
+ */
+class ReconciliationTaskletTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void classifiesEveryRecordOnBothSides() throws Exception {
+        ReconciliationReport report = join(
+                List.of(person("Ann", "a@x", 30), person("Bob", "b@x", 40), person("Cid", "c@x", 50)),
+                List.of(person("Ann", "a@x", 30), person("Bob", "b@x", 41), person("Dee", "d@x", 60)));
+
+        assertThat(report.getMatchedCount()).isEqualTo(1);
+        assertThat(report.getMismatchedCount()).isEqualTo(1);
+        assertThat(report.getMissingInDbCount()).isEqualTo(1);
+        assertThat(report.getMissingInSourceCount()).isEqualTo(1);
+        assertThat(lines("mismatched")).containsExactly(
+                "email,firstName,lastName,age,dbFirstName,dbLastName,dbAge,differingFields",
+                "b@x,Bob,Smith,40,Bob,Smith,41,age");
+        assertThat(lines("missing_in_db")).endsWith("Cid,Smith,c@x,50");
+        assertThat(lines("missing_in_source")).endsWith("Dee,Smith,d@x,60");
+    }
+
+    @Test
+    void duplicateSourceRecordsAllCompareToTheSameRow() throws Exception {
+        ReconciliationReport report = join(
+                List.of(person("Ann", "a@x", 30), person("Ann", "a@x", 31), person("Bob", "b@x", 40)),
+                List.of(person("Ann", "a@x", 30), person("Bob", "b@x", 40)));
+
+        assertThat(report.getMatchedCount()).isEqualTo(2);
+        assertThat(report.getMismatchedCount()).isEqualTo(1);
+        assertThat(report.getMissingInSourceCount()).isZero();
+        assertThat(report.getMissingInDbCount()).isZero();
+    }
+
+    @Test
+    void duplicateDbRowsAfterTheFirstAreMissingInSource() throws Exception {
+        ReconciliationReport report = join(
+                List.of(person("Ann", "a@x", 30), person("Bob", "b@x", 40)),
+                List.of(person("Ann", "a@x", 30), person("Ann", "a@x", 30), person("Bob", "b@x", 40)));
+
+        assertThat(report.getMatchedCount()).isEqualTo(2);
+        assertThat(report.getMissingInSourceCount()).isEqualTo(1);
+        assertThat(report.getMissingInDbCount()).isZero();
+    }
+
+    @Test
+    void normalizedSourceMatchesRowsWrittenByThePersonProcessor() throws Exception {
+        Person source = Person.builder().firstName(" Ann ").lastName("Smith ").email("  Ann@X ").age(30).build();
+        ReconciliationTasklet.normalize(source);
+
+        ReconciliationReport report = join(List.of(source), List.of(person("Ann", "ann@x", 30)));
+
+        assertThat(report.getMatchedCount()).isEqualTo(1);
+        assertThat(report.getMismatchedCount()).isZero();
+    }
+
+    private ReconciliationReport join(List<Person> source, List<Person> db) throws Exception {
+        try (ReconciliationReport report = new ReconciliationReport(dir.resolve("matches.csv"))) {
+            ReconciliationTasklet.mergeJoin(source.iterator(), db.iterator(), report);
+            return report;
+        }
+    }
+
+    private List<String> lines(String category) throws IOException {
+        return Files.readAllLines(ReconciliationReport.sibling(dir.resolve("matches.csv"), category));
+    }
+
+    private static Person person(String firstName, String email, int age) {
+        return Person.builder().firstName(firstName).lastName("Smith").email(email).age(age).build();
+    }
+}